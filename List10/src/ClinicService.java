@@ -0,0 +1,210 @@
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Concurrent front end of a ClinicSystem: every request runs on its own virtual thread.
+// Admission is bounded: at most maxInFlight requests run at once and at most as many more wait
+// for a permit. A request that finds the waiting line full, or cannot get a permit within the
+// admission timeout, is rejected instead of piling up. Latency of every
+// operation (admission wait included) goes into a per-operation histogram.
+class ClinicService implements AutoCloseable {
+    enum Operation { BOOK, PRESCRIBE, QUERY }
+
+    private final ClinicSystem clinic;
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final long admissionTimeoutNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder rejected = new LongAdder();
+
+    public ClinicService(ClinicSystem clinic, int maxInFlight, long admissionTimeoutMillis) {
+        this.clinic = clinic;
+        this.permits = new Semaphore(maxInFlight);
+        this.maxWaiting = maxInFlight;
+        this.admissionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(admissionTimeoutMillis);
+        for (Operation op : Operation.values()) latencies[op.ordinal()] = new LatencyHistogram();
+    }
+
+    public CompletableFuture<Appointment> book(Patient p, Doctor d, LocalDateTime date) {
+        return submit(Operation.BOOK, () -> clinic.book(p, d, date));
+    }
+
+    public CompletableFuture<Prescription> prescribe(Doctor d, Patient p, List<Treatment> treatments) {
+        return submit(Operation.PRESCRIBE, () -> {
+            Prescription pre = d.createPrescription(p);
+            for (Treatment t : treatments) pre.addTreatment(t);
+            return pre;
+        });
+    }
+
+    public CompletableFuture<List<Patient>> findPatients(String medicineName, Doctor d) {
+        return submit(Operation.QUERY, () -> clinic.findPatientsByMedicineAndDoctor(medicineName, d));
+    }
+
+    // The permit is taken on the caller's thread, so a rejected request never gets a thread at all
+    private <T> CompletableFuture<T> submit(Operation op, Callable<T> work) {
+        long start = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            if (!admit()) {
+                rejected.increment();
+                result.completeExceptionally(new RejectedExecutionException("Clinic is busy, try again later"));
+                return result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return result;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(work.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                    latencies[op.ordinal()].record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The service was closed: the task will never run to give the permit back
+            permits.release();
+            rejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // The waiting line is bounded too: timed waits that expire together in a long line would
+    // cost more to cancel than the requests they hold back
+    private boolean admit() throws InterruptedException {
+        if (permits.tryAcquire()) return true;
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(admissionTimeoutNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public LatencyHistogram getLatencies(Operation op) { return latencies[op.ordinal()]; }
+    public long getRejected() { return rejected.sum(); }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    // Log-linear histogram of nanosecond latencies: 16 sub-buckets per power of two,
+    // so every percentile is accurate to about 6%. Lock-free, safe to record from any thread.
+    static class LatencyHistogram {
+        private static final int SUB_BUCKETS = 16;
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder total = new LongAdder();
+
+        void record(long nanos) {
+            counts.incrementAndGet(bucketOf(Math.max(1, nanos)));
+            total.increment();
+        }
+
+        long count() { return total.sum(); }
+
+        // Upper bound of the bucket holding the q-quantile, in nanoseconds
+        long percentile(double q) {
+            long n = 0;
+            for (int i = 0; i < counts.length(); i++) n += counts.get(i);
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * n));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return upperBound(i);
+            }
+            return Long.MAX_VALUE;
+        }
+
+        private static int bucketOf(long nanos) {
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            if (exponent < 4) return (int) nanos;
+            int sub = (int) (nanos >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+            return (exponent - 3) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + 3;
+            long sub = bucket % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (exponent - 4)) - 1;
+        }
+    }
+
+    // Load driver: raises the number of concurrent sessions (one virtual thread each, looping over
+    // book, prescribe and query with a short think time) and reports throughput and latencies.
+    // Usage: ClinicService [max sessions] [seconds per level] [max in flight] [think time ms]
+    public static void main(String[] args) throws InterruptedException {
+        int maxSessions = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        long thinkMillis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+        String[] medicines = {"Ibuprofen", "Paracetamol", "Amoxicillin", "Metformin", "Calcium", "Aspirin"};
+
+        ClinicSystem clinic = new ClinicSystem();
+        Doctor[] doctors = new Doctor[200];
+        for (int i = 0; i < doctors.length; i++) doctors[i] = new Doctor("Doctor" + i, 30 + i % 35);
+        LocalDateTime firstSlot = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+        for (int sessions = 1000; sessions <= maxSessions; sessions *= 10) {
+            long levelStart = System.nanoTime();
+            try (ClinicService service = new ClinicService(clinic, maxInFlight, 1000)) {
+                LongAdder completed = new LongAdder();
+                LongAdder failed = new LongAdder();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+                int level = sessions;
+                List<Thread> threads = new ArrayList<>();
+                for (int s = 0; s < sessions; s++) {
+                    Patient patient = new Patient("Session" + level + "-" + s, 18 + s % 70, "Checkup");
+                    clinic.registerPatient(patient);
+                    threads.add(Thread.ofVirtual().start(() -> {
+                        SplittableRandom random = new SplittableRandom(patient.hashCode());
+                        while (System.nanoTime() < deadline) {
+                            Doctor d = doctors[random.nextInt(doctors.length)];
+                            try {
+                                service.book(patient, d, firstSlot.plusMinutes(30L * random.nextInt(100_000))).join();
+                                service.prescribe(d, patient, List.of(new Medicine(medicines[random.nextInt(medicines.length)], 400))).join();
+                                service.findPatients(medicines[random.nextInt(medicines.length)], d).join();
+                                completed.add(3);
+                            } catch (CompletionException e) {
+                                failed.increment();
+                            }
+                            // A rejected session backs off too, instead of hammering the admission queue
+                            try {
+                                Thread.sleep(thinkMillis);
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                    }));
+                }
+                for (Thread t : threads) t.join();
+
+                double elapsed = (System.nanoTime() - levelStart) / 1e9;
+                System.out.printf("%,d sessions: %,.0f ops/s over %.1f s, %,d failed, %,d rejected%n",
+                        sessions, completed.sum() / elapsed, elapsed, failed.sum(), service.getRejected());
+                for (Operation op : Operation.values()) {
+                    LatencyHistogram h = service.getLatencies(op);
+                    System.out.printf("  %-9s p50 %8.3f ms, p99 %8.3f ms, p999 %8.3f ms (%,d ops)%n", op,
+                            h.percentile(0.5) / 1e6, h.percentile(0.99) / 1e6, h.percentile(0.999) / 1e6, h.count());
+                }
+            }
+        }
+    }
+}
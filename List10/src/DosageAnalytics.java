@@ -0,0 +1,151 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Total dispensed mg and number of treatments per (medicine, doctor).
+// Open addressing over parallel primitive arrays keyed by medicine id and doctor identity,
+// so adding a treatment never boxes or allocates.
+class DosageTotals {
+    private Doctor[] doctors = new Doctor[64];
+    private int[] medicineIds = new int[64];
+    private double[] totalMg = new double[64];
+    private long[] counts = new long[64];
+    private int size;
+
+    public interface Consumer {
+        void accept(int medicineId, Doctor doctor, double totalMg, long count);
+    }
+
+    public synchronized void add(Doctor doctor, Treatment t) {
+        if (t instanceof Medicine) {
+            Medicine m = (Medicine) t;
+            add(m.getMedicineId(), doctor, m.getDosage(), 1);
+        }
+    }
+
+    public synchronized void add(int medicineId, Doctor doctor, double mg, long count) {
+        int i = slot(medicineId, doctor);
+        if (doctors[i] == null) {
+            doctors[i] = doctor;
+            medicineIds[i] = medicineId;
+            if (++size * 3 > doctors.length * 2) {
+                resize();
+                i = slot(medicineId, doctor);
+            }
+        }
+        totalMg[i] += mg;
+        counts[i] += count;
+    }
+
+    // Adds all totals of another accumulator (e.g. a partial aggregate of one chunk)
+    public synchronized DosageTotals merge(DosageTotals other) {
+        other.forEach((medicineId, doctor, mg, count) -> add(medicineId, doctor, mg, count));
+        return this;
+    }
+
+    public synchronized double getTotalMg(String medicine, Doctor doctor) {
+        int i = slot(MedicineNames.find(medicine), doctor);
+        return (doctors[i] == null) ? 0 : totalMg[i];
+    }
+
+    public synchronized long getCount(String medicine, Doctor doctor) {
+        int i = slot(MedicineNames.find(medicine), doctor);
+        return (doctors[i] == null) ? 0 : counts[i];
+    }
+
+    public synchronized int size() { return size; }
+
+    public synchronized void forEach(Consumer consumer) {
+        for (int i = 0; i < doctors.length; i++) {
+            if (doctors[i] != null) consumer.accept(medicineIds[i], doctors[i], totalMg[i], counts[i]);
+        }
+    }
+
+    private int slot(int medicineId, Doctor doctor) {
+        int mask = doctors.length - 1;
+        int h = medicineId * 0x9E3779B9 + System.identityHashCode(doctor);
+        int i = (h ^ (h >>> 16)) & mask;
+        while (doctors[i] != null && (doctors[i] != doctor || medicineIds[i] != medicineId)) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void resize() {
+        Doctor[] oldDoctors = doctors;
+        int[] oldIds = medicineIds;
+        double[] oldMg = totalMg;
+        long[] oldCounts = counts;
+        doctors = new Doctor[oldDoctors.length * 2];
+        medicineIds = new int[doctors.length];
+        totalMg = new double[doctors.length];
+        counts = new long[doctors.length];
+        for (int j = 0; j < oldDoctors.length; j++) {
+            if (oldDoctors[j] == null) continue;
+            int i = slot(oldIds[j], oldDoctors[j]);
+            doctors[i] = oldDoctors[j];
+            medicineIds[i] = oldIds[j];
+            totalMg[i] = oldMg[j];
+            counts[i] = oldCounts[j];
+        }
+    }
+}
+
+// Recomputes dosage totals over a whole prescription history, in parallel chunks
+// whose partial totals are merged at the end.
+class DosageAnalytics {
+    private static final int CHUNK = 4096;
+
+    public static DosageTotals compute(List<Patient> patients) {
+        int chunks = (patients.size() + CHUNK - 1) / CHUNK;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> accumulate(patients.subList(c * CHUNK, Math.min(patients.size(), (c + 1) * CHUNK))))
+                .reduce(DosageTotals::merge)
+                .orElseGet(DosageTotals::new);
+    }
+
+    private static DosageTotals accumulate(List<Patient> patients) {
+        DosageTotals totals = new DosageTotals();
+        for (Patient p : patients) {
+            for (Prescription pre : p.getPrescriptions()) {
+                Doctor doctor = pre.getDoctor();
+                for (Treatment t : pre.getTreatments()) totals.add(doctor, t);
+            }
+        }
+        return totals;
+    }
+
+    // Builds a synthetic history and compares the live totals with a full parallel recompute
+    public static void main(String[] args) {
+        int patientCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String[] medicines = {"Ibuprofen", "Paracetamol", "Amoxicillin", "Metformin", "Calcium", "Aspirin"};
+        double[] doses = {200, 400, 500, 850, 1000};
+        Random random = new Random(42);
+
+        ClinicSystem clinic = new ClinicSystem();
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < 100; i++) doctors.add(new Doctor("Doctor" + i, 30 + i % 30));
+
+        long start = System.nanoTime();
+        long treatments = 0;
+        for (int i = 0; i < patientCount; i++) {
+            Patient p = new Patient("Patient" + i, 1 + i % 90, "Checkup");
+            clinic.registerPatient(p);
+            for (int k = random.nextInt(4); k >= 0; k--) {
+                Prescription pre = doctors.get(random.nextInt(doctors.size())).createPrescription(p);
+                for (int m = random.nextInt(3); m >= 0; m--) {
+                    pre.addTreatment(new Medicine(medicines[random.nextInt(medicines.length)], doses[random.nextInt(doses.length)]));
+                    treatments++;
+                }
+            }
+        }
+        System.out.printf("Loaded %d treatments with live totals in %.2f s%n", treatments, (System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        DosageTotals recomputed = compute(clinic.getRegisteredPatients());
+        System.out.printf("Recomputed in parallel in %.3f s%n", (System.nanoTime() - start) / 1e9);
+
+        Doctor first = doctors.get(0);
+        for (String m : medicines) {
+            System.out.println(m + " by Dr. " + first.getName() + ": live " + clinic.getDosageTotals().getTotalMg(m, first)
+                    + "mg, recomputed " + recomputed.getTotalMg(m, first) + "mg");
+        }
+    }
+}
@@ -0,0 +1,314 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Discrete-event simulation of patient flow: check-in at a receptionist, vitals with a nurse
+// (Nurse.checkVitals) and a consultation with a doctor. Staff members are the resources and
+// every stage has a FIFO queue of waiting patients. Pending events live in a binary heap of
+// primitive arrays keyed by time, so a year of a large hospital runs without per-event objects.
+class HospitalSimulation {
+    static final int CHECK_IN = 0;
+    static final int VITALS = 1;
+    static final int CONSULTATION = 2;
+    private static final int ARRIVAL = 3;
+    private static final String[] STAGE_NAMES = {"Check-in", "Vitals", "Consultation"};
+    private static final double MINUTES_PER_DAY = 24 * 60;
+
+    interface ArrivalProcess {
+        // Time of the next arrival after now, in minutes
+        double next(double now, SplittableRandom random);
+    }
+
+    static ArrivalProcess poisson(double perMinute) {
+        return (now, random) -> now + exponential(random, 1 / perMinute);
+    }
+
+    // Rate rises from perMinute at night to peakFactor * perMinute at 11:00 (generated by thinning)
+    static ArrivalProcess daily(double perMinute, double peakFactor) {
+        double maxRate = perMinute * peakFactor;
+        return (now, random) -> {
+            double t = now;
+            while (true) {
+                t += exponential(random, 1 / maxRate);
+                double phase = 2 * Math.PI * ((t % MINUTES_PER_DAY) - 660) / MINUTES_PER_DAY;
+                double rate = perMinute * (1 + (peakFactor - 1) * Math.max(0, Math.cos(phase)));
+                if (random.nextDouble() * maxRate < rate) return t;
+            }
+        };
+    }
+
+    // One stage: its staff, the free ones, the waiting patients and the statistics
+    private static class Stage {
+        final Staff[] staff;
+        final double meanServiceMinutes;
+        final int[] free;
+        int freeCount;
+        int[] queue = new int[1024];
+        int head;
+        int queued;
+        double queueChangedAt;
+        double busyMinutes;
+        final Histogram waits = new Histogram(0.25, 14 * MINUTES_PER_DAY);
+        // Minutes spent at each queue length, so the percentiles are over time, not over events
+        final Histogram queueLengths = new Histogram(1, 1 << 16);
+
+        Stage(String name, Staff[] staff, double meanServiceMinutes) {
+            // A stage without staff would never serve its queue
+            if (staff.length < 1) throw new IllegalArgumentException(name + " needs at least one staff member");
+            this.staff = staff;
+            this.meanServiceMinutes = meanServiceMinutes;
+            this.free = new int[staff.length];
+            for (int i = 0; i < staff.length; i++) free[freeCount++] = staff.length - 1 - i;
+        }
+
+        // Credits the current queue length with the time since it last changed
+        void queueChanging(double now) {
+            queueLengths.add(queued, now - queueChangedAt);
+            queueChangedAt = now;
+        }
+
+        void enqueue(int patient, double now) {
+            queueChanging(now);
+            if (queued == queue.length) {
+                int[] bigger = new int[queue.length * 2];
+                for (int i = 0; i < queued; i++) bigger[i] = queue[(head + i) % queue.length];
+                queue = bigger;
+                head = 0;
+            }
+            queue[(head + queued++) % queue.length] = patient;
+        }
+
+        int dequeue(double now) {
+            queueChanging(now);
+            int patient = queue[head];
+            head = (head + 1) % queue.length;
+            queued--;
+            return patient;
+        }
+    }
+
+    private final Stage[] stages;
+    private final ArrivalProcess arrivals;
+    private final SplittableRandom random;
+    private int traceVitals;
+
+    // Binary min-heap: time of each event and its payload (type, staff index, patient slot)
+    private double[] eventTimes = new double[256];
+    private long[] eventPayloads = new long[256];
+    private int events;
+
+    // Patients in the hospital, by reusable slot
+    private double[] arrivedAt = new double[1024];
+    private double[] enteredStageAt = new double[1024];
+    private int[] freeSlots = new int[0];
+    private int freeSlotCount;
+    private int slotsUsed;
+
+    private double end;
+    private long arrived;
+    private long served;
+    private final Histogram timeInHospital = new Histogram(0.25, 14 * MINUTES_PER_DAY);
+
+    public HospitalSimulation(Receptionist[] receptionists, Nurse[] nurses, Doctor[] doctors,
+                              double checkInMinutes, double vitalsMinutes, double consultationMinutes,
+                              ArrivalProcess arrivals, long seed) {
+        this.stages = new Stage[] {
+                new Stage(STAGE_NAMES[0], receptionists, checkInMinutes),
+                new Stage(STAGE_NAMES[1], nurses, vitalsMinutes),
+                new Stage(STAGE_NAMES[2], doctors, consultationMinutes)
+        };
+        this.arrivals = arrivals;
+        this.random = new SplittableRandom(seed);
+    }
+
+    // Calls Nurse.checkVitals (which prints) for the first few vitals checks
+    public void traceVitals(int count) { this.traceVitals = count; }
+
+    // Admits arrivals until the given time; patients still inside are then served to completion
+    public void run(double minutes) {
+        double first = arrivals.next(0, random);
+        if (first < minutes) push(first, ARRIVAL, 0, 0);
+        while (events > 0) {
+            double now = eventTimes[0];
+            end = now;
+            long payload = eventPayloads[0];
+            pop();
+            int type = (int) (payload >>> 56);
+            int staff = (int) (payload >>> 32) & 0xFFFFFF;
+            int patient = (int) payload;
+            if (type == ARRIVAL) {
+                arrived++;
+                int slot = admit(now);
+                enter(CHECK_IN, slot, now);
+                double next = arrivals.next(now, random);
+                if (next < minutes) push(next, ARRIVAL, 0, 0);
+            } else {
+                finish(type, staff, patient, now);
+            }
+        }
+        for (Stage s : stages) s.queueChanging(end);
+    }
+
+    private void enter(int stage, int patient, double now) {
+        Stage s = stages[stage];
+        enteredStageAt[patient] = now;
+        if (s.freeCount > 0) start(stage, s.free[--s.freeCount], patient, now);
+        else s.enqueue(patient, now);
+    }
+
+    private void start(int stage, int staff, int patient, double now) {
+        Stage s = stages[stage];
+        s.waits.add(now - enteredStageAt[patient]);
+        double service = exponential(random, s.meanServiceMinutes);
+        s.busyMinutes += service;
+        if (stage == VITALS && traceVitals > 0) {
+            traceVitals--;
+            ((Nurse) s.staff[staff]).checkVitals(new Patient("Walk-in #" + patient, 0, "Checkup"));
+        }
+        push(now + service, stage, staff, patient);
+    }
+
+    private void finish(int stage, int staff, int patient, double now) {
+        Stage s = stages[stage];
+        if (s.queued > 0) start(stage, staff, s.dequeue(now), now);
+        else s.free[s.freeCount++] = staff;
+
+        if (stage < CONSULTATION) {
+            enter(stage + 1, patient, now);
+        } else {
+            served++;
+            timeInHospital.add(now - arrivedAt[patient]);
+            discharge(patient);
+        }
+    }
+
+    private int admit(double now) {
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            if (slotsUsed == arrivedAt.length) {
+                arrivedAt = Arrays.copyOf(arrivedAt, slotsUsed * 2);
+                enteredStageAt = Arrays.copyOf(enteredStageAt, slotsUsed * 2);
+            }
+            slot = slotsUsed++;
+        }
+        arrivedAt[slot] = now;
+        return slot;
+    }
+
+    private void discharge(int slot) {
+        if (freeSlotCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, Math.max(64, freeSlotCount * 2));
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void push(double time, int type, int staff, int patient) {
+        if (events == eventTimes.length) {
+            eventTimes = Arrays.copyOf(eventTimes, events * 2);
+            eventPayloads = Arrays.copyOf(eventPayloads, events * 2);
+        }
+        long payload = ((long) type << 56) | ((long) staff << 32) | (patient & 0xFFFFFFFFL);
+        int i = events++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (eventTimes[parent] <= time) break;
+            eventTimes[i] = eventTimes[parent];
+            eventPayloads[i] = eventPayloads[parent];
+            i = parent;
+        }
+        eventTimes[i] = time;
+        eventPayloads[i] = payload;
+    }
+
+    private void pop() {
+        double time = eventTimes[--events];
+        long payload = eventPayloads[events];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= events) break;
+            if (child + 1 < events && eventTimes[child + 1] < eventTimes[child]) child++;
+            if (eventTimes[child] >= time) break;
+            eventTimes[i] = eventTimes[child];
+            eventPayloads[i] = eventPayloads[child];
+            i = child;
+        }
+        eventTimes[i] = time;
+        eventPayloads[i] = payload;
+    }
+
+    private static double exponential(SplittableRandom random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    public void printReport() {
+        System.out.printf("Simulated %.0f days: %d patients arrived, %d served%n", end / MINUTES_PER_DAY, arrived, served);
+        for (int i = 0; i < stages.length; i++) {
+            Stage s = stages[i];
+            System.out.printf("%-13s staff %4d, utilization %5.1f%%, wait p50 %6.1f / p99 %7.1f / p99.9 %7.1f min, "
+                            + "queue p50 %4.0f / p99 %5.0f / max %5.0f%n",
+                    STAGE_NAMES[i], s.staff.length, 100 * s.busyMinutes / (s.staff.length * end),
+                    s.waits.percentile(0.5), s.waits.percentile(0.99), s.waits.percentile(0.999),
+                    s.queueLengths.percentile(0.5), s.queueLengths.percentile(0.99), s.queueLengths.percentile(1));
+        }
+        System.out.printf("Time in hospital: p50 %.1f, p99 %.1f, p99.9 %.1f min%n",
+                timeInHospital.percentile(0.5), timeInHospital.percentile(0.99), timeInHospital.percentile(0.999));
+    }
+
+    // Fixed-width buckets of weighted values (weight 1 for plain counts); values above the range
+    // land in the last bucket
+    static class Histogram {
+        private final double width;
+        private final double[] weights;
+
+        Histogram(double width, double max) {
+            this.width = width;
+            this.weights = new double[(int) Math.ceil(max / width) + 1];
+        }
+
+        void add(double value) {
+            add(value, 1);
+        }
+
+        void add(double value, double weight) {
+            weights[(int) Math.min(weights.length - 1, Math.max(0, value / width))] += weight;
+        }
+
+        // Lower edge of the bucket holding the q-quantile (exact for whole-number buckets of width 1)
+        double percentile(double q) {
+            // Summed in bucket order, so the running sum below reaches the total exactly
+            double total = 0;
+            for (double w : weights) total += w;
+            if (total == 0) return 0;
+            double seen = 0;
+            for (int i = 0; i < weights.length; i++) {
+                seen += weights[i];
+                if (seen > 0 && seen >= q * total) return i * width;
+            }
+            return (weights.length - 1) * width;
+        }
+    }
+
+    // Usage: HospitalSimulation [staff] [days] [arrivals per minute] [peak factor]
+    public static void main(String[] args) {
+        int staff = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        double days = args.length > 1 ? Double.parseDouble(args[1]) : 365;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        double peak = args.length > 3 ? Double.parseDouble(args[3]) : 1;
+
+        // 30% reception, 30% nurses, 40% doctors
+        Receptionist[] receptionists = new Receptionist[staff * 3 / 10];
+        Nurse[] nurses = new Nurse[staff * 3 / 10];
+        Doctor[] doctors = new Doctor[staff - receptionists.length - nurses.length];
+        for (int i = 0; i < receptionists.length; i++) receptionists[i] = new Receptionist("Receptionist" + i, 25 + i % 40);
+        for (int i = 0; i < nurses.length; i++) nurses[i] = new Nurse("Nurse" + i, 25 + i % 40);
+        for (int i = 0; i < doctors.length; i++) doctors[i] = new Doctor("Doctor" + i, 30 + i % 35);
+
+        ArrivalProcess arrivals = (peak > 1) ? daily(rate, peak) : poisson(rate);
+        HospitalSimulation sim = new HospitalSimulation(receptionists, nurses, doctors, 3, 8, 15, arrivals, 42);
+        sim.traceVitals(3);
+        long start = System.nanoTime();
+        sim.run(days * MINUTES_PER_DAY);
+        System.out.printf("Run time: %.2f s%n", (System.nanoTime() - start) / 1e9);
+        sim.printReport();
+    }
+}
@@ -1,6 +1,6 @@
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 interface Treatable {
     void receiveTreatment();
@@ -12,7 +12,7 @@ interface IClinic {
     void displayDoctorCalendar(Doctor d);
     void addPrescription(Patient p, Prescription pre);
     void displayPatientPrescriptions(Patient p);
-    void findPatientsByMedicineAndDoctor(String medicineName, Doctor doc);
+    List<Patient> findPatientsByMedicineAndDoctor(String medicineName, Doctor doc);
 }
 
 class Treatment {
@@ -28,14 +28,51 @@ class Treatment {
     public String toString() { return description; }
 }
 
+// Dense ids for medicine names (case-insensitive), so analytics can use primitive arrays.
+// Known names are looked up without locking; only a new name takes the lock to get its id.
+class MedicineNames {
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[16];
+    private static volatile int size;
+
+    public static int idOf(String name) {
+        String key = name.toLowerCase();
+        Integer id = ids.get(key);
+        if (id != null) return id;
+        synchronized (MedicineNames.class) {
+            id = ids.get(key);
+            if (id != null) return id;
+            if (size == names.length) names = Arrays.copyOf(names, size * 2);
+            // The name is stored before the id is published, so nameOf sees it for any id it gets
+            names[size] = name;
+            ids.put(key, size);
+            return size++;
+        }
+    }
+
+    // -1 if the name was never seen
+    public static int find(String name) {
+        Integer id = ids.get(name.toLowerCase());
+        return (id == null) ? -1 : id;
+    }
+
+    public static String nameOf(int id) { return names[id]; }
+    public static int size() { return size; }
+}
+
 class Medicine extends Treatment {
     private double dosage;
+    private int medicineId;
 
     public Medicine(String name, double dosage) {
         super(name);
         this.dosage = dosage;
+        this.medicineId = MedicineNames.idOf(name);
     }
 
+    public double getDosage() { return dosage; }
+    public int getMedicineId() { return medicineId; }
+
     @Override
     public String toString() { return description + " (" + dosage + "mg)"; }
 }
@@ -65,6 +102,7 @@ class Prescription {
     private Doctor doctor;
     private Patient patient;
     private List<Treatment> treatments;
+    private ClinicSystem clinic;
 
     public Prescription(Doctor doctor, Patient patient) {
         this.doctor = doctor;
@@ -72,12 +110,29 @@ class Prescription {
         this.treatments = new ArrayList<>();
     }
 
-    public void addTreatment(Treatment t) { treatments.add(t); }
-    public List<Treatment> getTreatments() { return treatments; }
+    public void addTreatment(Treatment t) {
+        ClinicSystem c;
+        synchronized (this) {
+            treatments.add(t);
+            c = clinic;
+        }
+        // Indexed outside the lock, so the clinic never waits for a prescription while holding its own locks
+        if (c != null) c.treatmentAdded(this, t);
+    }
+
+    public synchronized List<Treatment> getTreatments() { return new ArrayList<>(treatments); }
     public Doctor getDoctor() { return doctor; }
+    public Patient getPatient() { return patient; }
+
+    // Called once the prescription belongs to a registered patient. Returns the treatments added
+    // so far; later ones are reported to the clinic by addTreatment, so each is indexed exactly once.
+    synchronized List<Treatment> attach(ClinicSystem clinic) {
+        this.clinic = clinic;
+        return new ArrayList<>(treatments);
+    }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return "Prescription by Dr. " + doctor.getName() + ": " + treatments;
     }
 }
@@ -101,19 +156,40 @@ abstract class Person {
 class Patient extends Person implements Treatable {
     private String condition;
     private List<Prescription> prescriptions;
+    // Same prescriptions as the list, for O(1) membership checks (Prescription has identity equality)
+    private Set<Prescription> prescriptionSet;
     private List<Appointment> appointments;
+    private ClinicSystem clinic;
 
     public Patient(String name, int age, String condition) {
         super(name, age);
         this.condition = condition;
         this.prescriptions = new ArrayList<>();
+        this.prescriptionSet = new HashSet<>();
         this.appointments = new ArrayList<>();
     }
 
-    public void addPrescription(Prescription p) { prescriptions.add(p); }
-    public void addAppointment(Appointment a) { appointments.add(a); }
-    public List<Prescription> getPrescriptions() { return prescriptions; }
-    public List<Appointment> getAppointments() { return appointments; }
+    public void addPrescription(Prescription p) {
+        ClinicSystem c;
+        synchronized (this) {
+            if (!prescriptionSet.add(p)) return;
+            prescriptions.add(p);
+            c = clinic;
+        }
+        if (c != null) c.prescriptionAdded(this, p);
+    }
+
+    public synchronized boolean hasPrescription(Prescription p) { return prescriptionSet.contains(p); }
+    public synchronized void addAppointment(Appointment a) { appointments.add(a); }
+    public synchronized List<Prescription> getPrescriptions() { return new ArrayList<>(prescriptions); }
+    public synchronized List<Appointment> getAppointments() { return new ArrayList<>(appointments); }
+
+    // Called when the patient is registered. Returns the prescriptions so far; later ones are
+    // reported to the clinic by addPrescription, so each is indexed exactly once.
+    synchronized List<Prescription> attach(ClinicSystem clinic) {
+        this.clinic = clinic;
+        return new ArrayList<>(prescriptions);
+    }
 
     @Override
     public void receiveTreatment() {
@@ -132,35 +208,42 @@ abstract class Staff extends Person {
     public abstract void performDuties();
 
     public boolean scheduleAppointment(Patient p, Doctor d, LocalDateTime date) {
-        if (d.isAvailable(date)) {
-            Appointment app = new Appointment(date, p, d);
-            d.addAppointment(app);
-            p.addAppointment(app);
-            return true;
-        }
-        return false;
+        Appointment app = d.tryBook(p, date);
+        if (app == null) return false;
+        p.addAppointment(app);
+        return true;
     }
 }
 
 class Doctor extends Staff {
     private List<Appointment> appointments;
+    // Booked slots, so availability is a hash lookup instead of a scan of the calendar
+    private Set<LocalDateTime> bookedSlots;
 
     public Doctor(String name, int age) {
         super(name, age, "Doctor");
         this.appointments = new ArrayList<>();
+        this.bookedSlots = new HashSet<>();
     }
 
-    public boolean isAvailable(LocalDateTime newDate) {
-        for (Appointment a : appointments) {
-            if (a.getDate().isEqual(newDate)) {
-                return false;
-            }
-        }
-        return true;
+    public synchronized boolean isAvailable(LocalDateTime newDate) {
+        return !bookedSlots.contains(newDate);
     }
 
-    public void addAppointment(Appointment a) { appointments.add(a); }
-    public List<Appointment> getAppointments() { return appointments; }
+    // Checks and takes the slot in one step; null if it is already taken
+    public synchronized Appointment tryBook(Patient p, LocalDateTime date) {
+        if (!bookedSlots.add(date)) return null;
+        Appointment app = new Appointment(date, p, this);
+        appointments.add(app);
+        return app;
+    }
+
+    public synchronized void addAppointment(Appointment a) {
+        bookedSlots.add(a.getDate());
+        appointments.add(a);
+    }
+
+    public synchronized List<Appointment> getAppointments() { return new ArrayList<>(appointments); }
 
     public Prescription createPrescription(Patient p) {
         Prescription pres = new Prescription(this, p);
@@ -196,17 +279,78 @@ class Receptionist extends Staff {
     public void performDuties() { System.out.println(role + " " + name + " is scheduling appointments."); }
 }
 
+// Registered patients plus two indexes: patients per prescribing doctor, and patients per
+// medicine name (lowercase) and doctor. Registering and indexing a treatment are O(1).
+class PatientRegistry {
+    private Set<Patient> patients = new LinkedHashSet<>();
+    private Map<Doctor, Set<Patient>> byDoctor = new HashMap<>();
+    private Map<String, Map<Doctor, Set<Patient>>> byMedicine = new HashMap<>();
+
+    public synchronized boolean add(Patient p) { return patients.add(p); }
+    public synchronized boolean contains(Patient p) { return patients.contains(p); }
+    public synchronized int size() { return patients.size(); }
+    public synchronized List<Patient> getPatients() { return new ArrayList<>(patients); }
+
+    public synchronized void indexPrescription(Patient p, Prescription pre, List<Treatment> treatments) {
+        byDoctor.computeIfAbsent(pre.getDoctor(), d -> new LinkedHashSet<>()).add(p);
+        for (Treatment t : treatments) indexTreatment(p, pre, t);
+    }
+
+    public synchronized void indexTreatment(Patient p, Prescription pre, Treatment t) {
+        if (!(t instanceof Medicine)) return;
+        byMedicine.computeIfAbsent(t.getDescription().toLowerCase(), m -> new HashMap<>())
+                .computeIfAbsent(pre.getDoctor(), d -> new LinkedHashSet<>()).add(p);
+    }
+
+    public synchronized List<Patient> findByDoctor(Doctor d) {
+        return new ArrayList<>(byDoctor.getOrDefault(d, Collections.emptySet()));
+    }
+
+    public synchronized List<Patient> findByMedicineAndDoctor(String medicineName, Doctor d) {
+        Map<Doctor, Set<Patient>> doctors = byMedicine.get(medicineName.toLowerCase());
+        if (doctors == null) return new ArrayList<>();
+        return new ArrayList<>(doctors.getOrDefault(d, Collections.emptySet()));
+    }
+}
+
 class ClinicSystem implements IClinic {
-    private List<Patient> registeredPatients = new ArrayList<>();
+    private PatientRegistry registry = new PatientRegistry();
+    // Kept current as registered patients get prescriptions and treatments
+    private DosageTotals dosage = new DosageTotals();
 
-    public void registerPatient(Patient p) { registeredPatients.add(p); }
+    public void registerPatient(Patient p) {
+        if (!registry.add(p)) return;
+        for (Prescription pre : p.attach(this)) prescriptionAdded(p, pre);
+    }
+
+    public List<Patient> getRegisteredPatients() { return registry.getPatients(); }
+
+    public List<Patient> findPatientsByDoctor(Doctor d) { return registry.findByDoctor(d); }
+
+    public DosageTotals getDosageTotals() { return dosage; }
+
+    void prescriptionAdded(Patient p, Prescription pre) {
+        List<Treatment> treatments = pre.attach(this);
+        registry.indexPrescription(p, pre, treatments);
+        for (Treatment t : treatments) dosage.add(pre.getDoctor(), t);
+    }
+
+    void treatmentAdded(Prescription pre, Treatment t) {
+        if (!registry.contains(pre.getPatient())) return;
+        registry.indexTreatment(pre.getPatient(), pre, t);
+        dosage.add(pre.getDoctor(), t);
+    }
+
+    // Books the slot atomically; null if the doctor is busy then. Safe to call from many threads.
+    public Appointment book(Patient p, Doctor d, LocalDateTime date) {
+        Appointment app = d.tryBook(p, date);
+        if (app != null) p.addAppointment(app);
+        return app;
+    }
 
     @Override
     public void addAppointment(Patient p, Doctor d, LocalDateTime date) {
-        if (d.isAvailable(date)) {
-            Appointment app = new Appointment(date, p, d);
-            d.addAppointment(app);
-            p.addAppointment(app);
+        if (book(p, d, date) != null) {
             System.out.println("[OK] Appointment set for " + p.getName() + " with Dr. " + d.getName() + " at " + date);
         } else {
             System.out.println("[ERROR] Dr. " + d.getName() + " is busy at " + date);
@@ -231,7 +375,7 @@ class ClinicSystem implements IClinic {
 
     @Override
     public void addPrescription(Patient p, Prescription pre) {
-        if(!p.getPrescriptions().contains(pre)) {
+        if(!p.hasPrescription(pre)) {
             p.addPrescription(pre);
         }
     }
@@ -245,22 +389,8 @@ class ClinicSystem implements IClinic {
     }
 
     @Override
-    public void findPatientsByMedicineAndDoctor(String medicineName, Doctor doc) {
-        System.out.println("\n--- Searching: Patients with " + medicineName + " from Dr. " + doc.getName() + " ---");
-        boolean found = false;
-        for (Patient p : registeredPatients) {
-            for (Prescription pre : p.getPrescriptions()) {
-                if (pre.getDoctor() == doc) {
-                    for (Treatment t : pre.getTreatments()) {
-                        if (t instanceof Medicine && t.getDescription().equalsIgnoreCase(medicineName)) {
-                            System.out.println("Found: " + p.getName());
-                            found = true;
-                        }
-                    }
-                }
-            }
-        }
-        if (!found) System.out.println("No patients found.");
+    public List<Patient> findPatientsByMedicineAndDoctor(String medicineName, Doctor doc) {
+        return registry.findByMedicineAndDoctor(medicineName, doc);
     }
 }
 
@@ -299,7 +429,14 @@ public class ClinicTest {
 
         clinic.displayPatientPrescriptions(patientMaja);
 
-        clinic.findPatientsByMedicineAndDoctor("Ibuprofen", docZosia);
+        System.out.println("\n--- Searching: Patients with Ibuprofen from Dr. " + docZosia.getName() + " ---");
+        List<Patient> found = clinic.findPatientsByMedicineAndDoctor("Ibuprofen", docZosia);
+        for (Patient p : found) System.out.println("Found: " + p.getName());
+        if (found.isEmpty()) System.out.println("No patients found.");
+
+        System.out.println("\n>>> Dispensed per medicine and doctor:");
+        clinic.getDosageTotals().forEach((medicineId, doctor, totalMg, count) ->
+                System.out.println(MedicineNames.nameOf(medicineId) + " by Dr. " + doctor.getName() + ": " + totalMg + "mg in " + count + " treatments"));
 
         System.out.println("\n>>> Legacy Methods Check:");
         docZosia.introduce();
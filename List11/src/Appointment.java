@@ -0,0 +1,34 @@
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+
+class Appointment {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private LocalDateTime dateTime;
+    private Patient patient;
+    private Doctor doctor;
+    private int reasonId; // id in StringDictionary.REASONS
+
+    public Appointment(LocalDateTime dateTime, Patient patient, Doctor doctor, String reason) {
+        this.dateTime = dateTime;
+        this.patient = patient;
+        this.doctor = doctor;
+        // The dictionary, the journal and the snapshot all key on the text, so a missing reason is
+        // rejected here, before anything is booked, rather than failing later in one of them
+        this.reasonId = StringDictionary.REASONS.idOf(
+                Objects.requireNonNull(reason, "Appointment reason is null; use \"Checkup\" for a routine visit"));
+    }
+
+    public LocalDateTime getDate() { return dateTime; }
+    public Patient getPatient() { return patient; }
+    public Doctor getDoctor() { return doctor; }
+    public String getReason() { return StringDictionary.REASONS.valueOf(reasonId); }
+    public int getReasonId() { return reasonId; }
+
+    @Override
+    public String toString() {
+        String dateStr = dateTime.format(FORMAT);
+        return "Date: " + dateStr + " | Dr. " + doctor.getName() + " | Reason: " + getReason();
+    }
+}
@@ -0,0 +1,198 @@
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented copy of all appointments, for analytics.
+ * <p>
+ * Every appointment is one row spread over four primitive arrays: epoch minute,
+ * doctor id, patient id and reason id (from {@link StringDictionary#REASONS}).
+ * Group-by and filter operators run plain loops over these arrays, split into
+ * chunks that are processed in parallel and merged at the end.
+ */
+class AppointmentColumns {
+    private static final int CHUNK = 1 << 16;
+
+    private long[] minutes = new long[1024];
+    private int[] doctorIds = new int[1024];
+    private int[] patientIds = new int[1024];
+    private int[] reasonIds = new int[1024];
+    private int size;
+
+    private final List<Doctor> doctors = new ArrayList<>();
+    private final Map<Doctor, Integer> doctorIndex = new IdentityHashMap<>();
+    private final List<Patient> patients = new ArrayList<>();
+    private final Map<Patient, Integer> patientIndex = new IdentityHashMap<>();
+
+    /**
+     * Builds the columns from the doctors' calendars.
+     * @param doctors Doctors whose appointments are copied.
+     * @return The filled store.
+     */
+    static AppointmentColumns of(Collection<Doctor> doctors) {
+        AppointmentColumns columns = new AppointmentColumns();
+        for (Doctor d : doctors) {
+            for (Appointment a : d.getAppointments()) columns.append(a);
+        }
+        return columns;
+    }
+
+    /**
+     * Adds one appointment as a new row.
+     * @param a The appointment.
+     */
+    public void append(Appointment a) {
+        if (size == minutes.length) {
+            int capacity = size * 2;
+            minutes = Arrays.copyOf(minutes, capacity);
+            doctorIds = Arrays.copyOf(doctorIds, capacity);
+            patientIds = Arrays.copyOf(patientIds, capacity);
+            reasonIds = Arrays.copyOf(reasonIds, capacity);
+        }
+        minutes[size] = toMinute(a.getDate());
+        doctorIds[size] = idOf(doctorIndex, doctors, a.getDoctor());
+        patientIds[size] = idOf(patientIndex, patients, a.getPatient());
+        reasonIds[size] = a.getReasonId();
+        size++;
+    }
+
+    public int size() { return size; }
+    public Doctor getDoctor(int doctorId) { return doctors.get(doctorId); }
+    public int getDoctorCount() { return doctors.size(); }
+    public Patient getPatient(int patientId) { return patients.get(patientId); }
+
+    /**
+     * Doctor id used in this store, or -1 if the doctor has no appointments here.
+     */
+    public int doctorIdOf(Doctor d) {
+        Integer id = doctorIndex.get(d);
+        return (id != null) ? id : -1;
+    }
+
+    /**
+     * Counts appointments in [from, to) per doctor.
+     * @return counts[doctorId].
+     */
+    public long[] countPerDoctor(LocalDateTime from, LocalDateTime to) {
+        return countBy(doctorIds, doctors.size(), toMinute(from), toMinute(to));
+    }
+
+    /**
+     * Counts appointments in [from, to) per reason.
+     * @return counts[reasonId], indexed by {@link StringDictionary#REASONS} id.
+     */
+    public long[] countPerReason(LocalDateTime from, LocalDateTime to) {
+        return countBy(reasonIds, StringDictionary.REASONS.size(), toMinute(from), toMinute(to));
+    }
+
+    /**
+     * The most frequent reasons in [from, to).
+     * @param k How many reasons to return.
+     * @return Reasons with their counts, most frequent first.
+     */
+    public List<Map.Entry<String, Long>> topReasons(LocalDateTime from, LocalDateTime to, int k) {
+        long[] counts = countPerReason(from, to);
+        List<Map.Entry<String, Long>> result = new ArrayList<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) result.add(Map.entry(StringDictionary.REASONS.valueOf(id), counts[id]));
+        }
+        result.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return result.subList(0, Math.min(k, result.size()));
+    }
+
+    /**
+     * Visits per doctor per month, for the months from {@code first} to {@code last}.
+     * @return counts[doctorId][month], where month 0 is {@code first}.
+     * @throws IllegalArgumentException if {@code first} is after {@code last}.
+     */
+    public long[][] visitsPerDoctorPerMonth(YearMonth first, YearMonth last) {
+        if (first.isAfter(last)) throw new IllegalArgumentException("First month " + first + " is after last month " + last);
+        int months = (int) (last.getYear() * 12L + last.getMonthValue() - first.getYear() * 12L - first.getMonthValue()) + 1;
+        // Month boundaries as epoch minutes; boundaries[m] is the start of month m
+        long[] boundaries = new long[months + 1];
+        for (int m = 0; m <= months; m++) boundaries[m] = toMinute(first.plusMonths(m).atDay(1).atStartOfDay());
+        int doctorCount = doctors.size();
+        long lo = boundaries[0];
+        long hi = boundaries[months];
+
+        long[] flat = chunks().mapToObj(c -> {
+            long[] local = new long[doctorCount * months];
+            int end = Math.min(size, c + CHUNK);
+            for (int i = c; i < end; i++) {
+                long minute = minutes[i];
+                if (minute < lo || minute >= hi) continue;
+                int m = Arrays.binarySearch(boundaries, minute);
+                if (m < 0) m = -m - 2;
+                local[doctorIds[i] * months + m]++;
+            }
+            return local;
+        }).reduce(new long[doctorCount * months], AppointmentColumns::sum);
+
+        long[][] result = new long[doctorCount][];
+        for (int d = 0; d < doctorCount; d++) result[d] = Arrays.copyOfRange(flat, d * months, (d + 1) * months);
+        return result;
+    }
+
+    /**
+     * Rows with a date in [from, to), in row order.
+     * @return Row numbers.
+     */
+    public int[] filterByDate(LocalDateTime from, LocalDateTime to) {
+        long lo = toMinute(from);
+        long hi = toMinute(to);
+        return chunks().mapToObj(c -> {
+            int end = Math.min(size, c + CHUNK);
+            int[] rows = new int[end - c];
+            int n = 0;
+            for (int i = c; i < end; i++) {
+                if (minutes[i] >= lo && minutes[i] < hi) rows[n++] = i;
+            }
+            return Arrays.copyOf(rows, n);
+        }).reduce(new int[0], (a, b) -> {
+            int[] joined = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, joined, a.length, b.length);
+            return joined;
+        });
+    }
+
+    private long[] countBy(int[] keys, int keyCount, long lo, long hi) {
+        return chunks().mapToObj(c -> {
+            long[] local = new long[keyCount];
+            int end = Math.min(size, c + CHUNK);
+            for (int i = c; i < end; i++) {
+                long minute = minutes[i];
+                if (minute >= lo && minute < hi) local[keys[i]]++;
+            }
+            return local;
+        }).reduce(new long[keyCount], AppointmentColumns::sum);
+    }
+
+    /** Start row of every chunk, as a parallel stream (ordered, so reductions keep row order). */
+    private IntStream chunks() {
+        return IntStream.range(0, (size + CHUNK - 1) / CHUNK).parallel().map(c -> c * CHUNK);
+    }
+
+    private static long[] sum(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        for (int i = 0; i < a.length; i++) out[i] = a[i] + b[i];
+        return out;
+    }
+
+    private static <T> int idOf(Map<T, Integer> index, List<T> list, T item) {
+        Integer id = index.get(item);
+        if (id == null) {
+            id = list.size();
+            index.put(item, id);
+            list.add(item);
+        }
+        return id;
+    }
+
+    private static long toMinute(LocalDateTime date) {
+        if (date.equals(LocalDateTime.MIN)) return Long.MIN_VALUE;
+        if (date.equals(LocalDateTime.MAX)) return Long.MAX_VALUE;
+        return Math.floorDiv(date.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+}
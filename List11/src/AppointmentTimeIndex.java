@@ -0,0 +1,193 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Index of the appointments of all doctors by date.
+ * <p>
+ * Two sorted levels, like a two-level B-tree kept in flat arrays. The main level is
+ * bulk-loaded from the doctors' calendars and never changed afterwards. New bookings are
+ * inserted into a small sorted level; when it outgrows {@link #mergeThreshold()} both
+ * levels are merged into a new main level. Lookups and counts are binary searches on
+ * both levels. A range scan copies the matching part of the small level and then walks
+ * the main level lazily, without holding the lock.
+ * <p>
+ * Appointments with the same date are kept in insertion order.
+ */
+class AppointmentTimeIndex {
+    private static final int MIN_MERGE = 4096;
+
+    // Main level; replaced as a whole on merge, so scans can keep reading the old arrays
+    private long[] keys;
+    private Appointment[] rows;
+
+    private long[] recentKeys = new long[64];
+    private Appointment[] recentRows = new Appointment[64];
+    private int recentSize;
+
+    private AppointmentTimeIndex(long[] keys, Appointment[] rows) {
+        this.keys = keys;
+        this.rows = rows;
+    }
+
+    /**
+     * Bulk-loads the index from the doctors' calendars.
+     * @param doctors Doctors whose appointments are indexed.
+     * @return The index.
+     */
+    static AppointmentTimeIndex of(Collection<Doctor> doctors) {
+        List<Appointment> all = new ArrayList<>();
+        for (Doctor d : doctors) all.addAll(d.getAppointments());
+        Appointment[] rows = all.toArray(new Appointment[0]);
+        // Every calendar is already sorted, so this merges sorted runs
+        Arrays.sort(rows, Comparator.comparing(Appointment::getDate));
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) keys[i] = toSecond(rows[i].getDate());
+        return new AppointmentTimeIndex(keys, rows);
+    }
+
+    /**
+     * Adds a new appointment.
+     * @param a The appointment.
+     */
+    public synchronized void add(Appointment a) {
+        long key = toSecond(a.getDate());
+        if (recentSize == recentKeys.length) {
+            recentKeys = Arrays.copyOf(recentKeys, recentSize * 2);
+            recentRows = Arrays.copyOf(recentRows, recentSize * 2);
+        }
+        int at = upperBound(recentKeys, recentSize, key);
+        System.arraycopy(recentKeys, at, recentKeys, at + 1, recentSize - at);
+        System.arraycopy(recentRows, at, recentRows, at + 1, recentSize - at);
+        recentKeys[at] = key;
+        recentRows[at] = a;
+        recentSize++;
+        if (recentSize > mergeThreshold()) merge();
+    }
+
+    public synchronized int size() { return keys.length + recentSize; }
+
+    /**
+     * Counts appointments in [from, to).
+     */
+    public synchronized int count(LocalDateTime from, LocalDateTime to) {
+        long lo = toSecond(from);
+        long hi = toSecond(to);
+        return lowerBound(keys, keys.length, hi) - lowerBound(keys, keys.length, lo)
+                + lowerBound(recentKeys, recentSize, hi) - lowerBound(recentKeys, recentSize, lo);
+    }
+
+    /**
+     * @return The first appointment at or after the date, or null if there is none.
+     */
+    public synchronized Appointment ceiling(LocalDateTime date) {
+        long key = toSecond(date);
+        int i = lowerBound(keys, keys.length, key);
+        int j = lowerBound(recentKeys, recentSize, key);
+        boolean inMain = i < keys.length;
+        boolean inRecent = j < recentSize;
+        if (inMain && (!inRecent || keys[i] <= recentKeys[j])) return rows[i];
+        return inRecent ? recentRows[j] : null;
+    }
+
+    /**
+     * Streams the appointments in [from, to) in date order.
+     * Appointments added after the call may or may not be included.
+     */
+    public Stream<Appointment> scan(LocalDateTime from, LocalDateTime to) {
+        long lo = toSecond(from);
+        long hi = toSecond(to);
+        long[] mainKeys;
+        Appointment[] mainRows;
+        long[] otherKeys;
+        Appointment[] otherRows;
+        int mainStart;
+        int mainEnd;
+        synchronized (this) {
+            mainKeys = keys;
+            mainRows = rows;
+            mainStart = lowerBound(keys, keys.length, lo);
+            mainEnd = lowerBound(keys, keys.length, hi);
+            int start = lowerBound(recentKeys, recentSize, lo);
+            int end = lowerBound(recentKeys, recentSize, hi);
+            otherKeys = Arrays.copyOfRange(recentKeys, start, end);
+            otherRows = Arrays.copyOfRange(recentRows, start, end);
+        }
+
+        Iterator<Appointment> merged = new Iterator<Appointment>() {
+            private int i = mainStart;
+            private int j = 0;
+
+            @Override
+            public boolean hasNext() { return i < mainEnd || j < otherKeys.length; }
+
+            @Override
+            public Appointment next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                // On equal dates the main level goes first: it holds the older insertions
+                if (j == otherKeys.length || (i < mainEnd && mainKeys[i] <= otherKeys[j])) return mainRows[i++];
+                return otherRows[j++];
+            }
+        };
+        int size = (mainEnd - mainStart) + otherKeys.length;
+        return StreamSupport.stream(Spliterators.spliterator(merged, size,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private int mergeThreshold() {
+        return Math.max(MIN_MERGE, keys.length >>> 6);
+    }
+
+    private void merge() {
+        int n = keys.length + recentSize;
+        long[] mergedKeys = new long[n];
+        Appointment[] mergedRows = new Appointment[n];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < n; k++) {
+            if (j == recentSize || (i < keys.length && keys[i] <= recentKeys[j])) {
+                mergedKeys[k] = keys[i];
+                mergedRows[k] = rows[i++];
+            } else {
+                mergedKeys[k] = recentKeys[j];
+                mergedRows[k] = recentRows[j++];
+            }
+        }
+        keys = mergedKeys;
+        rows = mergedRows;
+        Arrays.fill(recentRows, 0, recentSize, null);
+        recentSize = 0;
+    }
+
+    /** First index whose key is >= the given key. */
+    private static int lowerBound(long[] a, int length, long key) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** First index whose key is > the given key. */
+    private static int upperBound(long[] a, int length, long key) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static long toSecond(LocalDateTime date) {
+        if (date.equals(LocalDateTime.MIN)) return Long.MIN_VALUE;
+        if (date.equals(LocalDateTime.MAX)) return Long.MAX_VALUE;
+        return date.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,78 @@
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test and throughput measurement for concurrent booking.
+ * <p>
+ * Many virtual-thread clients try to book random slots of a small set of doctors,
+ * so most attempts collide. Every BOOKED result is counted per (doctor, slot), so a slot
+ * handed out twice shows up as a double booking even though a calendar, keyed by date,
+ * can only hold it once. Afterwards the calendars and patient lists are compared with
+ * the number of BOOKED results.
+ */
+public class BookingBenchmark {
+
+    /**
+     * Runs the benchmark.
+     * @param args Optional: clients, attempts per client, doctors, slots per doctor.
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int attempts = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int doctorCount = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int slots = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+
+        ClinicManager clinic = new ClinicManager();
+        Doctor[] doctors = new Doctor[doctorCount];
+        for (int i = 0; i < doctorCount; i++) doctors[i] = clinic.getOrCreateDoctor("Doctor " + i);
+        Patient[] patients = new Patient[clients];
+        for (int i = 0; i < clients; i++) patients[i] = clinic.getOrCreatePatient("patient" + i + "@clinic", "patient" + i + "@clinic", 30);
+
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 8, 0);
+        AtomicLong booked = new AtomicLong();
+        AtomicLong taken = new AtomicLong();
+        // BOOKED results per doctor * slots + slot index
+        AtomicIntegerArray bookedPerSlot = new AtomicIntegerArray(doctorCount * slots);
+        AtomicLong doubleBookings = new AtomicLong();
+
+        long t0 = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                Patient patient = patients[c];
+                pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < attempts; i++) {
+                        int doctor = random.nextInt(doctorCount);
+                        int slotIndex = random.nextInt(slots);
+                        LocalDateTime slot = start.plusMinutes(30L * slotIndex);
+                        BookingResult result = clinic.book(patient, doctors[doctor], slot, "Stress");
+                        if (result.isBooked()) {
+                            booked.incrementAndGet();
+                            if (bookedPerSlot.incrementAndGet(doctor * slots + slotIndex) > 1) doubleBookings.incrementAndGet();
+                        } else {
+                            taken.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - t0;
+
+        long inCalendars = 0;
+        for (Doctor d : doctors) inCalendars += d.getAppointments().size();
+        long inPatients = 0;
+        for (Patient p : patients) inPatients += p.getAppointments().size();
+
+        long total = (long) clients * attempts;
+        System.out.println("Attempts: " + total + " (booked " + booked.get() + ", slot taken " + taken.get() + ")");
+        System.out.printf("Throughput: %.0f bookings/s%n", total / (elapsed / 1e9));
+        System.out.println("Double bookings: " + doubleBookings.get());
+        System.out.println("Appointments in calendars: " + inCalendars + ", in patients: " + inPatients);
+        System.out.println("Consistent: " + (inCalendars == booked.get() && inPatients == booked.get()));
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Outcome of an attempt to book a slot.
+ */
+class BookingResult {
+    enum Status { BOOKED, SLOT_TAKEN }
+
+    private final Status status;
+    private final Appointment appointment;
+
+    private BookingResult(Status status, Appointment appointment) {
+        this.status = status;
+        this.appointment = appointment;
+    }
+
+    static BookingResult booked(Appointment a) { return new BookingResult(Status.BOOKED, a); }
+    static BookingResult slotTaken() { return new BookingResult(Status.SLOT_TAKEN, null); }
+
+    public Status getStatus() { return status; }
+    public boolean isBooked() { return status == Status.BOOKED; }
+
+    /**
+     * @return The new appointment, or null if the slot was taken.
+     */
+    public Appointment getAppointment() { return appointment; }
+
+    @Override
+    public String toString() {
+        return isBooked() ? "BOOKED " + appointment : "SLOT_TAKEN";
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic clinic CSV files in the free-text format understood by
+ * {@code ClinicManager.parseRecord}, e.g.
+ * <pre>
+ * "2024-03-19, Patient is 58 years old, visiting for Flu, Patient takes: Metformin, Lisinopril, Email: p259@example.com, Doctor: Wilson, Laura."
+ * </pre>
+ * Doctors and patients are picked with a Zipf-like skew, so a few doctors and
+ * patients get most of the visits, as in real exports. The same seed always
+ * gives the same file.
+ */
+public class ClinicDataGenerator {
+    static final String[] FIRST_NAMES = {"Laura", "John", "Anna", "Kim", "Maria", "Peter", "Sofia", "James",
+            "Olga", "Robert", "Emma", "Adam", "Julia", "Tomas", "Nina", "David"};
+    static final String[] LAST_NAMES = {"Wilson", "Smith", "Brown", "Lee", "Garcia", "Novak", "Miller", "Davis",
+            "Kowalski", "Taylor", "Moore", "Clark", "Lewis", "Walker", "Young", "King"};
+    static final String[] MEDICINES = {"Lisinopril", "Ibuprofen", "Metformin", "Aspirin", "Atorvastatin",
+            "Amlodipine", "Omeprazole", "Levothyroxine", "Albuterol", "Gabapentin", "Losartan", "Sertraline",
+            "Simvastatin", "Amoxicillin", "Prednisone", "Warfarin", "Insulin", "Paracetamol", "Cetirizine", "Furosemide"};
+    static final String[] REASONS = {"Checkup", "Flu", "Back pain", "Headache", "Allergy", "Diabetes control",
+            "Hypertension", "Vaccination", "Injury", "Skin rash"};
+
+    private final int doctors;
+    private final int patients;
+    private final double skew;
+    private final long seed;
+
+    /**
+     * Constructs a generator.
+     * @param doctors Number of distinct doctors.
+     * @param patients Number of distinct patients.
+     * @param skew Zipf exponent; 0 picks uniformly, around 1 is strongly skewed.
+     * @param seed Random seed.
+     */
+    public ClinicDataGenerator(int doctors, int patients, double skew, long seed) {
+        this.doctors = doctors;
+        this.patients = patients;
+        this.skew = skew;
+        this.seed = seed;
+    }
+
+    /**
+     * Writes the given number of lines to a file.
+     * @param path Output file (overwritten).
+     * @param lines Number of lines.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path path, long lines) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] doctorCdf = zipfCdf(doctors, skew);
+        double[] patientCdf = zipfCdf(patients, skew);
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        StringBuilder line = new StringBuilder(256);
+
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (long i = 0; i < lines; i++) {
+                int doctor = pick(doctorCdf, random);
+                int patient = pick(patientCdf, random);
+
+                line.setLength(0);
+                line.append('"').append(firstDay.plusDays(random.nextInt(365)));
+                line.append(", Patient is ").append(ageOf(patient)).append(" years old");
+                line.append(", visiting for ").append(REASONS[random.nextInt(REASONS.length)]);
+                if (random.nextInt(10) < 8) {
+                    line.append(", Patient takes: ");
+                    int meds = 1 + random.nextInt(3);
+                    for (int m = 0; m < meds; m++) {
+                        if (m > 0) line.append(", ");
+                        line.append(MEDICINES[random.nextInt(MEDICINES.length)]);
+                    }
+                }
+                if (patient % 2 == 0) {
+                    line.append(", Email: p").append(patient).append("@example.com");
+                } else {
+                    line.append(", Cell: ").append(phoneOf(patient));
+                }
+                line.append(", Doctor: ").append(doctorName(doctor)).append(".\"\n");
+                out.append(line);
+            }
+        }
+    }
+
+    /**
+     * Doctor name in the "Last, First" form used by the exports.
+     * Doctor 0 is "Wilson, Laura", the doctor used by the demo.
+     */
+    static String doctorName(int doctor) {
+        String name = LAST_NAMES[doctor % LAST_NAMES.length] + ", " + FIRST_NAMES[(doctor / LAST_NAMES.length + doctor) % FIRST_NAMES.length];
+        int round = doctor / (LAST_NAMES.length * FIRST_NAMES.length);
+        return (round == 0) ? name : name + round;
+    }
+
+    private static int ageOf(int patient) {
+        return 1 + (int) ((patient * 2654435761L >>> 8) % 95);
+    }
+
+    private static String phoneOf(int patient) {
+        return String.format("(%03d) %03d-%04d", 200 + patient / 10_000_000 % 800, patient / 10_000 % 1000, patient % 10_000);
+    }
+
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) cdf[i] /= sum;
+        return cdf;
+    }
+
+    private static int pick(double[] cdf, SplittableRandom random) {
+        int i = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(cdf.length - 1, (i >= 0) ? i : -i - 1);
+    }
+
+    /**
+     * Generates a file from the command line.
+     * @param args output path, lines [, doctors, patients, skew, seed]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: ClinicDataGenerator <output.csv> <lines> [doctors] [patients] [skew] [seed]");
+            return;
+        }
+        long lines = Long.parseLong(args[1]);
+        int doctors = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int patients = args.length > 3 ? Integer.parseInt(args[3]) : (int) Math.max(1, lines / 5);
+        double skew = args.length > 4 ? Double.parseDouble(args[4]) : 0.8;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42;
+
+        long start = System.nanoTime();
+        new ClinicDataGenerator(doctors, patients, skew, seed).write(Path.of(args[0]), lines);
+        System.out.printf("Wrote %d lines to %s in %.1f s%n", lines, args[0], (System.nanoTime() - start) / 1e9);
+    }
+}
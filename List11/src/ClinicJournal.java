@@ -0,0 +1,430 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of appointment and prescription mutations.
+ * <p>
+ * Every record is framed as [payload length int, CRC32 int, payload], where the
+ * payload starts with a log sequence number (LSN). On open the log is replayed into
+ * the clinic, skipping records already contained in the loaded snapshot, and a torn
+ * tail left by a crash is cut off.
+ * <p>
+ * With {@link Durability#BATCHED} a background thread writes and fsyncs everything
+ * appended since the previous flush in one go, so concurrent callers share one fsync
+ * (group commit). With {@link Durability#PER_OP} the waiting callers do the same among
+ * themselves: one of them flushes, and the others wait for its fsync.
+ */
+class ClinicJournal implements Closeable {
+
+    /**
+     * When an appended record is considered durable.
+     */
+    enum Durability {
+        /**
+         * Callers flush the records themselves in {@link #awaitDurable(long)}: a caller that finds
+         * no flush running writes and fsyncs every pending record, and the others wait for it.
+         */
+        PER_OP,
+        /** Callers wait for a shared fsync done by the flusher thread. */
+        BATCHED,
+        /** Callers do not wait; the flusher fsyncs every {@link #ASYNC_INTERVAL_MILLIS}. */
+        ASYNC
+    }
+
+    static final long ASYNC_INTERVAL_MILLIS = 100;
+
+    private static final byte APPOINTMENT = 1;
+    private static final byte PRESCRIPTION = 2;
+    // Larger lengths can only come from a corrupted frame; append refuses to write them
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final Path path;
+    /** Replaced when records are discarded; guarded by {@link #ioLock}. */
+    private FileChannel channel;
+    private final Durability durability;
+    /** Guards the pending buffer and the LSN counters. */
+    private final Object lock = new Object();
+    /** Serializes file writes, so batches reach the disk in LSN order. Taken before {@link #lock}. */
+    private final Object ioLock = new Object();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final Thread flusher;
+
+    private long lastLsn;
+    private long durableLsn;
+    private IOException failure;
+    private boolean closed;
+    /** A {@link Durability#PER_OP} caller is flushing for everyone waiting; guarded by {@link #lock}. */
+    private boolean flushing;
+
+    private ClinicJournal(Path path, FileChannel channel, Durability durability, long lastLsn) {
+        this.path = path;
+        this.channel = channel;
+        this.durability = durability;
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        if (durability == Durability.PER_OP) {
+            flusher = null;
+        } else {
+            flusher = new Thread(this::flushLoop, "clinic-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Opens (or creates) a journal and replays it into the clinic.
+     * @param path Journal file.
+     * @param durability Durability mode for new records.
+     * @param clinic Clinic to replay into.
+     * @param afterLsn Records up to this LSN are already in the clinic (from a snapshot) and are skipped.
+     * @return The opened journal.
+     * @throws IOException if the file cannot be opened or read, or a record books a slot the clinic already has.
+     */
+    static ClinicJournal open(Path path, Durability durability, ClinicManager clinic, long afterLsn) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long lastLsn = afterLsn;
+        long validEnd = 0;
+        try {
+            long size = channel.size();
+            // Stream the file through a small buffer, so the journal may be of any size. The stream
+            // reads from the channel's position and must not be closed, as that closes the channel.
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel.position(0)), READ_BUFFER_BYTES));
+            CRC32 crc = new CRC32();
+            while (size - validEnd >= 8) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES || length > size - validEnd - 8) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+
+                long lsn = apply(payload, clinic, afterLsn);
+                lastLsn = Math.max(lastLsn, lsn);
+                validEnd += 8 + length;
+            }
+            // Drop a torn or corrupted tail so new records follow the last good one
+            channel.truncate(validEnd);
+            channel.position(validEnd);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new ClinicJournal(path, channel, durability, lastLsn);
+    }
+
+    private static long apply(byte[] payload, ClinicManager clinic, long afterLsn) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long lsn = in.readLong();
+        if (lsn <= afterLsn) return lsn;
+
+        byte type = in.readByte();
+        Patient patient = clinic.getOrCreatePatient(in.readUTF(), in.readUTF(), in.readInt());
+        Doctor doctor = clinic.getOrCreateDoctor(in.readUTF());
+        if (type == APPOINTMENT) {
+            LocalDateTime date = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            Appointment apt = new Appointment(date, patient, doctor, in.readUTF());
+            try {
+                doctor.addAppointment(apt);
+            } catch (IllegalStateException e) {
+                // The snapshot or an earlier record already holds the slot: the files do not belong together
+                throw new IOException("Journal record " + lsn + " conflicts with the clinic: " + e.getMessage(), e);
+            }
+            patient.addAppointment(apt);
+        } else if (type == PRESCRIPTION) {
+            Prescription pre = new Prescription(doctor, patient);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                boolean medicine = in.readBoolean();
+                String text = in.readUTF();
+                pre.addTreatment(medicine ? new Medicine(text) : new Treatment(text));
+            }
+            clinic.applyPrescription(patient, pre);
+        } else {
+            throw new IOException("Unknown journal record type " + type);
+        }
+        return lsn;
+    }
+
+    /**
+     * Appends a booked appointment.
+     * @param a The appointment.
+     * @return LSN of the record, to pass to {@link #awaitDurable(long)}.
+     * @throws IOException if the journal failed earlier or cannot be written.
+     */
+    long logAppointment(Appointment a) throws IOException {
+        return append(APPOINTMENT, a.getPatient(), a.getDoctor(), out -> {
+            out.writeLong(a.getDate().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(a.getDate().getNano());
+            out.writeUTF(a.getReason());
+        });
+    }
+
+    /**
+     * Appends a prescription added to a patient.
+     * @param p The patient.
+     * @param pre The prescription.
+     * @return LSN of the record, to pass to {@link #awaitDurable(long)}.
+     * @throws IOException if the journal failed earlier or cannot be written.
+     */
+    long logPrescription(Patient p, Prescription pre) throws IOException {
+        return append(PRESCRIPTION, p, pre.getDoctor(), out -> {
+            out.writeInt(pre.getTreatments().size());
+            for (Treatment t : pre.getTreatments()) {
+                out.writeBoolean(t instanceof Medicine);
+                out.writeUTF(t.getDescription());
+            }
+        });
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private long append(byte type, Patient p, Doctor d, Body body) throws IOException {
+        long lsn;
+        synchronized (lock) {
+            if (failure != null) throw new IOException("Journal failed earlier", failure);
+            if (closed) throw new IOException("Journal closed");
+
+            lsn = lastLsn + 1;
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeLong(lsn);
+            out.writeByte(type);
+            out.writeUTF(p.getName());
+            out.writeUTF(p.getContactInfo());
+            out.writeInt(p.getAge());
+            out.writeUTF(d.getName());
+            body.write(out);
+            if (payload.size() > MAX_RECORD_BYTES) throw new IOException("Journal record too large");
+
+            CRC32 crc = new CRC32();
+            crc.update(payload.toByteArray());
+            DataOutputStream frame = new DataOutputStream(pending);
+            frame.writeInt(payload.size());
+            frame.writeInt((int) crc.getValue());
+            payload.writeTo(pending);
+            lastLsn = lsn;
+
+            if (durability == Durability.BATCHED) lock.notifyAll();
+        }
+        // Even in PER_OP mode the record is only queued: callers append while holding the clinic's
+        // locks, and the fsync happens in awaitDurable after they are released
+        return lsn;
+    }
+
+    /**
+     * Blocks until the record with the given LSN is on disk.
+     * Returns immediately in {@link Durability#ASYNC} mode. In {@link Durability#PER_OP} mode the
+     * first waiting caller flushes every pending record, and callers arriving meanwhile share
+     * the next flush.
+     * @param lsn LSN returned by one of the log methods.
+     * @throws IOException if flushing failed.
+     */
+    void awaitDurable(long lsn) throws IOException {
+        if (durability == Durability.ASYNC) return;
+        while (true) {
+            synchronized (lock) {
+                while (durableLsn < lsn && failure == null
+                        && (durability == Durability.BATCHED || flushing)) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for the journal", e);
+                    }
+                }
+                if (durableLsn >= lsn) return;
+                if (failure != null) throw new IOException("Journal flush failed", failure);
+                flushing = true;
+            }
+            try {
+                flushBatch();
+            } finally {
+                synchronized (lock) {
+                    flushing = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes and fsyncs everything appended so far.
+     * @throws IOException if flushing failed.
+     */
+    void sync() throws IOException {
+        flushBatch();
+    }
+
+    /**
+     * Writes everything appended so far and returns the file length. While no record is being
+     * appended, this marks the end of the records up to {@link #getLastLsn()}.
+     * @return The mark, to pass to {@link #discardBefore(long)}.
+     * @throws IOException if flushing failed.
+     */
+    long flushedLength() throws IOException {
+        synchronized (ioLock) {
+            flushBatch();
+            return channel.size();
+        }
+    }
+
+    /**
+     * Drops the records before a mark after a snapshot saved them.
+     * LSNs keep growing, so the snapshot remembers which records it contains.
+     * The records after the mark are copied to a new file that atomically replaces the journal,
+     * so a crash leaves either the old or the new file. Only file writes wait meanwhile;
+     * callers keep appending to the pending batch.
+     * @param mark A mark from {@link #flushedLength()}.
+     * @throws IOException if the new file cannot be written; the journal then fails.
+     */
+    void discardBefore(long mark) throws IOException {
+        synchronized (ioLock) {
+            synchronized (lock) {
+                if (closed) return;
+                if (failure != null) throw new IOException("Journal failed earlier", failure);
+            }
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try {
+                try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long size = channel.size();
+                    for (long pos = mark; pos < size; ) pos += channel.transferTo(pos, size - pos, out);
+                    out.force(true);
+                }
+                // Closed before the move, as an open file cannot be replaced on Windows
+                channel.close();
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                throw e;
+            }
+        }
+    }
+
+    long getLastLsn() {
+        synchronized (lock) {
+            return lastLsn;
+        }
+    }
+
+    /**
+     * Writes and fsyncs everything appended so far, then wakes up waiting callers.
+     */
+    private void flushBatch() throws IOException {
+        synchronized (ioLock) {
+            byte[] batch;
+            long upTo;
+            synchronized (lock) {
+                if (failure != null) throw new IOException("Journal failed earlier", failure);
+                batch = pending.toByteArray();
+                pending.reset();
+                upTo = lastLsn;
+            }
+
+            // Write outside the lock, so callers keep appending to the next batch
+            try {
+                if (batch.length > 0) {
+                    ByteBuffer buf = ByteBuffer.wrap(batch);
+                    while (buf.hasRemaining()) channel.write(buf);
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                throw e;
+            }
+
+            synchronized (lock) {
+                durableLsn = Math.max(durableLsn, upTo);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (lock) {
+                try {
+                    if (durability == Durability.ASYNC) {
+                        if (!closed) lock.wait(ASYNC_INTERVAL_MILLIS);
+                    } else {
+                        while (pending.size() == 0 && !closed) lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed || failure != null) return;
+                if (pending.size() == 0) continue;
+            }
+            try {
+                flushBatch();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Flushes remaining records and closes the file.
+     * @throws IOException if the final flush fails.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            lock.notifyAll();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flushBatch();
+        } finally {
+            synchronized (ioLock) {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Load-test driver for the clinic system.
+ * <p>
+ * Generates a synthetic CSV with {@link ClinicDataGenerator} (unless a file is given),
+ * then measures ingest rate of the serial and the parallel loader, heap used per
+ * record, patient dedup rate, latency percentiles of the main queries, single versus
+ * batch lookups, time-range queries over all doctors, and the lag of tail-follow
+ * ingest while the file grows at 50k rows/s.
+ */
+public class ClinicLoadTest {
+
+    /**
+     * Runs the load test.
+     * @param args lines [, doctors, patients, skew, threads, csv file]
+     */
+    public static void main(String[] args) throws IOException {
+        long lines = args.length > 0 ? Long.parseLong(args[0]) : 200_000;
+        int doctors = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int patients = args.length > 2 ? Integer.parseInt(args[2]) : (int) Math.max(1, lines / 5);
+        double skew = args.length > 3 ? Double.parseDouble(args[3]) : 0.8;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        Path csv;
+        if (args.length > 5) {
+            csv = Path.of(args[5]);
+        } else {
+            csv = Files.createTempFile("clinic-load", ".csv");
+            csv.toFile().deleteOnExit();
+            new ClinicDataGenerator(doctors, patients, skew, 42).write(csv, lines);
+        }
+        System.out.printf("Data: %s (%d lines, %.1f MB)%n", csv, lines, Files.size(csv) / 1e6);
+
+        PrintStream console = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        // 1. Ingest
+        long before = usedHeap();
+        System.setOut(quiet);
+        long t0 = System.nanoTime();
+        ClinicManager serial = new ClinicManager();
+        serial.loadDataFromFile(csv.toString());
+        long serialNanos = System.nanoTime() - t0;
+        System.setOut(console);
+        long heap = usedHeap() - before;
+        report("Serial ingest", lines, serialNanos);
+        System.out.printf("Heap per record: %.0f bytes%n", (double) heap / lines);
+        serial = null;
+
+        System.setOut(quiet);
+        t0 = System.nanoTime();
+        ClinicManager clinic = new ClinicManager();
+        clinic.loadDataFromFileParallel(csv.toString(), threads);
+        long parallelNanos = System.nanoTime() - t0;
+        System.setOut(console);
+        report("Parallel ingest (" + threads + " threads)", lines, parallelNanos);
+        PatientIdentityIndex index = clinic.getPatientIndex();
+        System.out.println("Patient index: " + index + ", likely duplicate groups: " + index.findLikelyDuplicates().size());
+        dedup(csv);
+
+        // 2. Queries
+        List<Doctor> docs = new ArrayList<>(clinic.getDoctors());
+        List<Patient> pats = new ArrayList<>(clinic.getPatients());
+        Random random = new Random(7);
+        int queries = 20_000;
+
+        long[] find = new long[queries];
+        long[] calendar = new long[queries];
+        long[] prescriptions = new long[queries];
+        System.setOut(quiet);
+        for (int i = 0; i < queries; i++) {
+            Doctor d = docs.get(random.nextInt(docs.size()));
+            String medicine = ClinicDataGenerator.MEDICINES[random.nextInt(ClinicDataGenerator.MEDICINES.length)];
+            long s = System.nanoTime();
+            clinic.findPatientsByMedicineAndDoctor(medicine, d);
+            find[i] = System.nanoTime() - s;
+
+            LocalDate day = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(365));
+            s = System.nanoTime();
+            clinic.displayDoctorDay(d, day);
+            calendar[i] = System.nanoTime() - s;
+
+            Patient p = pats.get(random.nextInt(pats.size()));
+            s = System.nanoTime();
+            clinic.displayPatientPrescriptions(p);
+            prescriptions[i] = System.nanoTime() - s;
+        }
+        System.setOut(console);
+
+        percentiles("findPatientsByMedicineAndDoctor", find);
+        percentiles("displayDoctorDay", calendar);
+        percentiles("displayPatientPrescriptions", prescriptions);
+        System.out.println("Query cache: " + clinic.getQueryCache());
+
+        // 3. Batch lookups, as issued by the nightly report
+        List<MedicineQuery> batch = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            batch.add(new MedicineQuery(ClinicDataGenerator.MEDICINES[random.nextInt(ClinicDataGenerator.MEDICINES.length)],
+                    docs.get(random.nextInt(docs.size()))));
+        }
+        clinic.getQueryCache().clear();
+        long s = System.nanoTime();
+        Map<MedicineQuery, List<Patient>> one = new HashMap<>();
+        for (MedicineQuery q : batch) one.put(q, clinic.findPatientsByMedicineAndDoctor(q.getMedicineName(), q.getDoctor()));
+        report("Single lookups", batch.size(), System.nanoTime() - s);
+        s = System.nanoTime();
+        Map<MedicineQuery, List<Patient>> all = clinic.findPatientsByMedicineAndDoctor(batch);
+        report("Batch lookups", batch.size(), System.nanoTime() - s);
+        System.out.println("Batch results match: " + one.equals(all));
+        s = System.nanoTime();
+        clinic.getDoctorCalendars(docs);
+        clinic.getPatientPrescriptions(pats);
+        report("Batch calendars and prescriptions", docs.size() + pats.size(), System.nanoTime() - s);
+
+        // 4. Capacity planning over all doctors
+        long[] weekCount = new long[queries];
+        long[] dayScan = new long[queries];
+        clinic.getTimeIndex();
+        for (int i = 0; i < queries; i++) {
+            LocalDateTime from = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(365)).atStartOfDay();
+            s = System.nanoTime();
+            clinic.countAppointmentsBetween(from, from.plusDays(7));
+            weekCount[i] = System.nanoTime() - s;
+            s = System.nanoTime();
+            clinic.getAppointmentsBetween(from, from.plusDays(1)).mapToInt(a -> 1).sum();
+            dayScan[i] = System.nanoTime() - s;
+        }
+        percentiles("countAppointmentsBetween (week)", weekCount);
+        percentiles("getAppointmentsBetween (day)", dayScan);
+
+        // 5. Tail-follow ingest of a file growing at a fixed rate
+        follow(csv, 50_000);
+    }
+
+    /**
+     * Measures patient id building and get-or-create alone, on the contacts of the CSV.
+     */
+    private static void dedup(Path csv) throws IOException {
+        List<String> contacts = new ArrayList<>();
+        List<Integer> ages = new ArrayList<>();
+        for (String line : Files.readAllLines(csv, StandardCharsets.UTF_8)) {
+            ParsedRecord rec = ClinicManager.parseRecord(line.replace("\"", ""));
+            if (rec.error != null) continue;
+            contacts.add(rec.contact);
+            ages.add(rec.age);
+        }
+        int rounds = 5;
+        long t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            PatientIdentityIndex index = new PatientIdentityIndex();
+            for (int i = 0; i < contacts.size(); i++) {
+                String contact = contacts.get(i);
+                String id = (contact.indexOf('@') != -1) ? contact : PatientIdentityIndex.phoneId(contact);
+                index.getOrCreate(id, contact, ages.get(i));
+            }
+        }
+        report("Patient dedup", (long) rounds * contacts.size(), System.nanoTime() - t0);
+    }
+
+    /**
+     * Appends the lines of the CSV to a new file at the given rate while a
+     * {@link ClinicTailFollower} applies them, and reports the ingest lag.
+     */
+    private static void follow(Path csv, int rowsPerSecond) throws IOException {
+        List<String> rows = Files.readAllLines(csv, StandardCharsets.UTF_8);
+        Path growing = Files.createTempFile("clinic-follow", ".csv");
+        growing.toFile().deleteOnExit();
+
+        ClinicManager clinic = new ClinicManager();
+        IngestReport ingest = new IngestReport(null);
+        int slice = Math.max(1, rowsPerSecond / 10);
+        long t0 = System.nanoTime();
+        try (ClinicTailFollower follower = new ClinicTailFollower(clinic, growing, 0, ingest);
+             BufferedWriter out = Files.newBufferedWriter(growing, StandardCharsets.UTF_8)) {
+            follower.start(20);
+            for (int from = 0; from < rows.size(); from += slice) {
+                for (int i = from; i < Math.min(rows.size(), from + slice); i++) {
+                    out.write(rows.get(i));
+                    out.write('\n');
+                }
+                out.flush();
+                // Keep to the target rate: slice number k is due at k / 10 seconds
+                long due = t0 + (from / slice + 1) * 100_000_000L;
+                long wait = due - System.nanoTime();
+                if (wait > 0) sleep(wait / 1_000_000);
+            }
+            long size = Files.size(growing);
+            while (follower.getOffset() < size) sleep(5);
+            long nanos = System.nanoTime() - t0;
+            report("Tail-follow ingest (target " + rowsPerSecond + " rows/s)", follower.getLines(), nanos);
+            System.out.printf("Ingest lag: last %d ms, max %d ms over %d batches (%s)%n",
+                    follower.getLastLagMillis(), follower.getMaxLagMillis(), follower.getBatches(), ingest);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void report(String label, long lines, long nanos) {
+        System.out.printf("%s: %.2f s, %.0f lines/s%n", label, nanos / 1e9, lines / (nanos / 1e9));
+    }
+
+    private static void percentiles(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s: p50 %.1f us, p99 %.1f us, p99.9 %.1f us%n", label,
+                at(sorted, 0.50) / 1e3, at(sorted, 0.99) / 1e3, at(sorted, 0.999) / 1e3);
+    }
+
+    private static long at(long[] sorted, double q) {
+        return sorted[Math.min(sorted.length - 1, (int) (q * sorted.length))];
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
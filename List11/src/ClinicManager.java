@@ -0,0 +1,763 @@
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the Clinic System.
+ * Handles data loading from CSV and managing clinic operations.
+ */
+class ClinicManager implements IClinic {
+    private PatientIdentityIndex patients = new PatientIdentityIndex();
+    private Map<String, Doctor> doctors = new HashMap<>();
+    private MedicineIndex medicineIndex = new MedicineIndex();
+    private ClinicJournal journal;
+    private long snapshotLsn;
+    // Bookings and prescriptions share the read side and run concurrently (doctors and
+    // patients guard their own lists); snapshots and journal changes take the write side
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    // Keeps compactions in turn, as each one discards the journal up to its own mark
+    private final Object compactLock = new Object();
+
+    private static final int CALENDAR_PAGE_SIZE = 256;
+
+    // Cached query results, weighted by rendered characters or list length
+    private static final long QUERY_CACHE_WEIGHT = 1 << 22;
+    private static final String TAG_CALENDAR = "calendar";
+    private static final String TAG_APPOINTMENTS_OF = "appointments-of";
+    private static final String TAG_PRESCRIPTIONS_OF = "prescriptions-of";
+    private static final String TAG_PRESCRIPTIONS_BY = "prescriptions-by";
+    private final QueryCache<List<Object>, Object> queryCache = new QueryCache<>(QUERY_CACHE_WEIGHT,
+            v -> (v instanceof String) ? ((String) v).length() : ((List<?>) v).size());
+    // Built on first use, then kept current by appointmentAdded; dropped on bulk loads
+    private volatile AppointmentTimeIndex timeIndex;
+    private static final Pattern AGE_PATTERN = Pattern.compile("is (\\d+) years old");
+    private static final Pattern REASON_PATTERN = Pattern.compile("visiting for (.*?),");
+
+    /**
+     * Loads patient and doctor data from a CSV file.
+     * @param filePath The absolute path to the CSV file.
+     */
+    public void loadDataFromFile(String filePath) {
+        loadDataFromFile(filePath, null);
+    }
+
+    /**
+     * Loads patient and doctor data from a CSV file, counting rejected lines.
+     * @param filePath The absolute path to the CSV file.
+     * @param quarantinePath File that receives rejected lines, or null to only count them.
+     * @return Accepted and rejected line counts, or null if the file could not be read.
+     */
+    public IngestReport loadDataFromFile(String filePath, String quarantinePath) {
+        System.out.println("Loading file: " + filePath);
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(filePath), StandardCharsets.UTF_8);
+             Writer quarantine = openQuarantine(quarantinePath)) {
+            IngestReport report = new IngestReport(quarantine);
+            String raw;
+            while ((raw = reader.readLine()) != null) {
+                String line = raw.trim();
+                // Remove quotes
+                line = line.replace("\"", "");
+
+                if (line.isEmpty()) continue;
+
+                ParsedRecord rec = parseRecordSafely(line);
+                if (rec.error != null) {
+                    report.reject(rec.error, raw.trim());
+                    continue;
+                }
+                try {
+                    applyRecord(rec);
+                    report.accept();
+                } catch (RuntimeException e) {
+                    report.reject(ParseError.OTHER, raw.trim());
+                }
+            }
+            dataReplaced();
+            printLoaded(report);
+            return report;
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            System.out.println("ERROR: File not found! Check path: " + filePath);
+        } catch (IOException e) {
+            System.out.println("ERROR: Could not read file: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Loads the CSV file using several worker threads.
+     * The resulting registries are identical to the ones built by {@link #loadDataFromFile(String)}.
+     * @param filePath The absolute path to the CSV file.
+     * @param threads Number of worker threads used for parsing and slot resolution.
+     */
+    public void loadDataFromFileParallel(String filePath, int threads) {
+        loadDataFromFileParallel(filePath, threads, null);
+    }
+
+    /**
+     * Loads the CSV file using several worker threads, counting rejected lines.
+     * @param filePath The absolute path to the CSV file.
+     * @param threads Number of worker threads used for parsing and slot resolution.
+     * @param quarantinePath File that receives rejected lines, or null to only count them.
+     * @return Accepted and rejected line counts, or null if the file could not be read.
+     */
+    public IngestReport loadDataFromFileParallel(String filePath, int threads, String quarantinePath) {
+        System.out.println("Loading file: " + filePath);
+        try (Writer quarantine = openQuarantine(quarantinePath)) {
+            IngestReport report = new IngestReport(quarantine);
+            new ParallelClinicLoader(this, threads).load(filePath, report);
+            dataReplaced();
+            printLoaded(report);
+            return report;
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            System.out.println("ERROR: File not found! Check path: " + filePath);
+        } catch (IOException e) {
+            System.out.println("ERROR: Could not read file: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static Writer openQuarantine(String quarantinePath) throws IOException {
+        if (quarantinePath == null) return null;
+        return Files.newBufferedWriter(Path.of(quarantinePath), StandardCharsets.UTF_8);
+    }
+
+    private void printLoaded(IngestReport report) {
+        System.out.println(">>> Data Loaded! Patients: " + patients.size() + ", Doctors: " + doctors.size());
+        if (report.getRejected() > 0) System.out.println(">>> Rejected lines: " + report);
+    }
+
+    /**
+     * Like {@link #parseRecord(String)}, but also turns unexpected exceptions into {@link ParseError#OTHER}.
+     */
+    static ParsedRecord parseRecordSafely(String line) {
+        try {
+            return parseRecord(line);
+        } catch (RuntimeException e) {
+            return ParsedRecord.rejected(ParseError.OTHER);
+        }
+    }
+
+    /**
+     * Parses one cleaned CSV line without touching any registry.
+     * Safe to call from several threads at once. Malformed lines are reported
+     * through {@link ParsedRecord#error} instead of an exception, so dirty files
+     * do not pay for building stack traces.
+     * @param line A trimmed line with quotes removed.
+     * @return The parsed record.
+     */
+    static ParsedRecord parseRecord(String line) {
+        // 1. Date
+        int firstComma = line.indexOf(',');
+        String dateStr = (firstComma == -1 ? line : line.substring(0, firstComma)).trim();
+        LocalDate localDate = parseDate(dateStr);
+        if (localDate == null) return ParsedRecord.rejected(ParseError.BAD_DATE);
+        LocalDateTime dateTime = localDate.atTime(9, 0);
+
+        // 2. Doctor
+        String doctorName = "Unknown";
+        int docIndex = line.indexOf("Doctor:");
+        if (docIndex != -1) {
+            String rawDoc = line.substring(docIndex + 7).trim();
+            if (rawDoc.endsWith(".")) {
+                rawDoc = rawDoc.substring(0, rawDoc.length() - 1);
+            }
+            doctorName = rawDoc;
+
+            if (doctorName.contains(",")) {
+                String[] nameParts = doctorName.split(",");
+                if (nameParts.length >= 2) {
+                    doctorName = nameParts[1].trim() + " " + nameParts[0].trim();
+                }
+            }
+        }
+
+        // 3. Patient
+        String ageStr = extractRegex(line, AGE_PATTERN);
+        int age = (ageStr != null) ? parseAge(ageStr) : 0;
+        if (age < 0) return ParsedRecord.rejected(ParseError.BAD_AGE);
+
+        String email = extractValue(line, "Email:");
+        String cell = extractValue(line, "Cell:");
+        String contact = (email != null) ? email : (cell != null ? cell : "No Contact");
+        String patientId = (email != null) ? email : PatientIdentityIndex.phoneId(contact);
+
+        // 4. Appointment
+        String reason = extractRegex(line, REASON_PATTERN);
+        if (reason == null) reason = "Checkup";
+
+        // 5. Prescriptions
+        List<String> medsList = null;
+        String medsStr = extractValue(line, "Patient takes:");
+        if (medsStr != null) {
+            int cutIndex = medsStr.length();
+            if (medsStr.contains(", Email:")) cutIndex = Math.min(cutIndex, medsStr.indexOf(", Email:"));
+            if (medsStr.contains(", Cell:")) cutIndex = Math.min(cutIndex, medsStr.indexOf(", Cell:"));
+            if (medsStr.contains(", Doctor:")) cutIndex = Math.min(cutIndex, medsStr.indexOf(", Doctor:"));
+
+            String cleanMeds = medsStr.substring(0, cutIndex);
+            String[] medArray = cleanMeds.split(",");
+            medsList = new ArrayList<>();
+            for (String m : medArray) medsList.add(m);
+        }
+
+        return new ParsedRecord(dateTime, doctorName, patientId, contact, age, reason, medsList);
+    }
+
+    /**
+     * Parses a yyyy-MM-dd date without throwing. Accepts the same years as {@link LocalDate#parse}:
+     * 4 digits, '+' and 5 to 10 digits, or '-' and 4 to 10 digits.
+     * @return The date, or null if the text is not a valid date.
+     */
+    private static LocalDate parseDate(String s) {
+        int yearEnd = s.length() - 6;
+        if (yearEnd < 4 || s.charAt(yearEnd) != '-' || s.charAt(yearEnd + 3) != '-') return null;
+        char sign = s.charAt(0);
+        int from = (sign == '+' || sign == '-') ? 1 : 0;
+        int digits = yearEnd - from;
+        if (from == 0 ? digits != 4 : digits > 10 || digits < (sign == '+' ? 5 : 4)) return null;
+        long year = parseDigits(s, from, yearEnd);
+        // -0000 is rejected like by LocalDate.parse
+        if (year < 0 || year > Year.MAX_VALUE || (sign == '-' && year == 0)) return null;
+        if (sign == '-') year = -year;
+        long month = parseDigits(s, yearEnd + 1, yearEnd + 3);
+        long day = parseDigits(s, yearEnd + 4, yearEnd + 6);
+        if (month < 1 || month > 12 || day < 1) return null;
+        if (day > Month.of((int) month).length(Year.isLeap(year))) return null;
+        return LocalDate.of((int) year, (int) month, (int) day);
+    }
+
+    /**
+     * Parses an age made of ASCII digits.
+     * @return The age, or -1 if it does not fit an int.
+     */
+    private static int parseAge(String digits) {
+        long value = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            value = value * 10 + (digits.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE) return -1;
+        }
+        return (int) value;
+    }
+
+    private static long parseDigits(String s, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Applies a parsed record to the registries: registers the doctor and patient,
+     * books the first free slot and issues the prescription.
+     * @param rec The parsed record.
+     * @return The booked appointment.
+     */
+    private Appointment applyRecord(ParsedRecord rec) {
+        Doctor doc = getOrCreateDoctor(rec.doctorName);
+        Patient patient = getOrCreatePatient(rec);
+
+        LocalDateTime dateTime = doc.findFreeSlot(rec.requestedDate);
+
+        Appointment apt = new Appointment(dateTime, patient, doc, rec.reason);
+        doc.addAppointment(apt);
+        patient.addAppointment(apt);
+
+        if (rec.medicines != null) {
+            doc.createPrescription(patient, rec.medicines);
+        }
+        return apt;
+    }
+
+    /**
+     * Applies newly appended CSV lines to the live clinic, in one write-locked batch.
+     * Only the cached results touched by the new lines are dropped.
+     * @param lines Raw lines, in file order.
+     * @param report Receives accepted and rejected lines.
+     * @throws IOException if the quarantine cannot be written.
+     */
+    void applyLines(List<String> lines, IngestReport report) throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            for (String raw : lines) {
+                String line = raw.trim().replace("\"", "");
+                if (line.isEmpty()) continue;
+
+                ParsedRecord rec = parseRecordSafely(line);
+                if (rec.error != null) {
+                    report.reject(rec.error, raw.trim());
+                    continue;
+                }
+                try {
+                    appointmentAdded(applyRecord(rec));
+                    report.accept();
+                } catch (RuntimeException e) {
+                    report.reject(ParseError.OTHER, raw.trim());
+                }
+            }
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    Doctor getOrCreateDoctor(String doctorName) {
+        Doctor doc = doctors.get(doctorName);
+        if (doc == null) {
+            doc = new Doctor(doctorName);
+            doc.setClinic(this);
+            doctors.put(doctorName, doc);
+        }
+        return doc;
+    }
+
+    Patient getOrCreatePatient(ParsedRecord rec) {
+        return getOrCreatePatient(rec.patientId, rec.contact, rec.age);
+    }
+
+    Patient getOrCreatePatient(String patientId, String contact, int age) {
+        return patients.getOrCreate(patientId, contact, age);
+    }
+
+    /**
+     * Opens the write-ahead journal and replays the bookings and prescriptions
+     * that are not yet in the loaded snapshot. From then on every
+     * {@link #addAppointment} and {@link #addPrescription} is logged before it returns.
+     * @param journalPath Path of the journal file (created if missing).
+     * @param durability When a logged mutation counts as durable.
+     * @throws IOException if the journal cannot be opened or read, or a record conflicts with the clinic.
+     */
+    public void openJournal(String journalPath, ClinicJournal.Durability durability) throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            journal = ClinicJournal.open(Path.of(journalPath), durability, this, snapshotLsn);
+        } finally {
+            // A replay that fails half way has still changed the data
+            dataReplaced();
+            stateLock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Folds the journal into a new snapshot and drops the records it contains from the journal.
+     * Only copying the state and marking the end of the journal hold the write lock; the snapshot
+     * is then written to a temporary file and moved in place while bookings and queries continue.
+     * Records journaled meanwhile stay in the journal.
+     * @param snapshotPath Path of the snapshot file.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void compact(String snapshotPath) throws IOException {
+        synchronized (compactLock) {
+            ClinicJournal log;
+            long journalMark = 0;
+            ClinicSnapshot.Image image;
+            stateLock.writeLock().lock();
+            try {
+                log = journal;
+                if (log != null) journalMark = log.flushedLength();
+                image = ClinicSnapshot.capture(this, (log != null) ? log.getLastLsn() : snapshotLsn);
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+
+            Path target = Path.of(snapshotPath);
+            Path tmp = Path.of(snapshotPath + ".tmp");
+            ClinicSnapshot.write(image, tmp);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (log != null) {
+                stateLock.writeLock().lock();
+                try {
+                    snapshotLsn = Math.max(snapshotLsn, image.getJournalLsn());
+                } finally {
+                    stateLock.writeLock().unlock();
+                }
+                log.discardBefore(journalMark);
+            }
+        }
+    }
+
+
+    /**
+     * Flushes and closes the journal, if one is open.
+     * @throws IOException if the final flush fails.
+     */
+    public void closeJournal() throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Adds a prescription without logging it (used by snapshot loading and journal replay).
+     */
+    void applyPrescription(Patient p, Prescription pre) {
+        p.addPrescription(pre);
+        prescriptionAdded(p, pre);
+    }
+
+    /**
+     * Indexes a prescription that was added to a patient and drops cached results depending on it.
+     */
+    void prescriptionAdded(Patient p, Prescription pre) {
+        medicineIndex.add(p, pre);
+        queryCache.invalidate(List.of(TAG_PRESCRIPTIONS_OF, p));
+        queryCache.invalidate(List.of(TAG_PRESCRIPTIONS_BY, pre.getDoctor()));
+    }
+
+    /**
+     * Drops cached results depending on a new appointment.
+     */
+    void appointmentAdded(Appointment a) {
+        AppointmentTimeIndex index = timeIndex;
+        if (index != null) index.add(a);
+        queryCache.invalidate(List.of(TAG_CALENDAR, a.getDoctor()));
+        queryCache.invalidate(List.of(TAG_APPOINTMENTS_OF, a.getPatient()));
+    }
+
+    /**
+     * Drops everything derived from the registries after a bulk load.
+     */
+    private void dataReplaced() {
+        timeIndex = null;
+        queryCache.clear();
+    }
+
+    /**
+     * @return The query result cache, for its hit, miss and eviction counters.
+     */
+    public QueryCache<List<Object>, Object> getQueryCache() { return queryCache; }
+
+    /**
+     * Copies all appointments into a columnar store for analytics.
+     * Bookings made afterwards are not included; append them or build a new store.
+     * @return The columnar store.
+     */
+    public AppointmentColumns buildAppointmentColumns() {
+        stateLock.writeLock().lock();
+        try {
+            return AppointmentColumns.of(doctors.values());
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the index of all appointments by date, bulk-loading it on first use.
+     * New bookings are added to it as they are made.
+     * @return The time index.
+     */
+    public AppointmentTimeIndex getTimeIndex() {
+        AppointmentTimeIndex index = timeIndex;
+        if (index != null) return index;
+        // The write lock keeps bookings out, so none is missed between the bulk load and publishing
+        stateLock.writeLock().lock();
+        try {
+            if (timeIndex == null) timeIndex = AppointmentTimeIndex.of(doctors.values());
+            return timeIndex;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the appointments of all doctors in [from, to).
+     * @param from Start of the range (inclusive).
+     * @param to End of the range (exclusive).
+     * @return Number of appointments.
+     */
+    public int countAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        return getTimeIndex().count(from, to);
+    }
+
+    /**
+     * Streams the appointments of all doctors in [from, to), in date order.
+     * @param from Start of the range (inclusive).
+     * @param to End of the range (exclusive).
+     * @return The appointments.
+     */
+    public Stream<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        return getTimeIndex().scan(from, to);
+    }
+
+    /**
+     * Finds the earliest free slot among a group of doctors (e.g. one specialty),
+     * probing each doctor in 30-minute steps from the requested slot.
+     * @param group The doctors that can take the visit.
+     * @param from The requested slot.
+     * @return The doctor and the slot, or null if the group is empty. On a tie the
+     *         doctor listed first wins.
+     */
+    public Map.Entry<Doctor, LocalDateTime> findFreeSlot(Collection<Doctor> group, LocalDateTime from) {
+        Map.Entry<Doctor, LocalDateTime> best = null;
+        for (Doctor d : group) {
+            LocalDateTime slot = d.findFreeSlot(from);
+            if (best == null || slot.isBefore(best.getValue())) best = Map.entry(d, slot);
+        }
+        return best;
+    }
+
+    Collection<Patient> getPatients() { return patients.values(); }
+
+    /**
+     * @return The patient registry, for its memory footprint and duplicate detection.
+     */
+    PatientIdentityIndex getPatientIndex() { return patients; }
+    Collection<Doctor> getDoctors() { return doctors.values(); }
+
+    /**
+     * Saves the whole clinic state to a binary snapshot file.
+     * @param snapshotPath Path of the snapshot file (overwritten if it exists).
+     * @throws IOException if the file cannot be written.
+     */
+    public void saveSnapshot(String snapshotPath) throws IOException {
+        ClinicSnapshot.Image image;
+        // Only the copy needs a clinic no one changes; the file is written without the lock
+        stateLock.writeLock().lock();
+        try {
+            image = ClinicSnapshot.capture(this, (journal != null) ? journal.getLastLsn() : snapshotLsn);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        ClinicSnapshot.write(image, Path.of(snapshotPath));
+    }
+
+
+    /**
+     * Loads clinic state from a snapshot written by {@link #saveSnapshot(String)}.
+     * Should be called on an empty clinic.
+     * @param snapshotPath Path of the snapshot file.
+     * @throws IOException if the file cannot be read or is corrupted.
+     */
+    public void loadSnapshot(String snapshotPath) throws IOException {
+        snapshotLsn = ClinicSnapshot.read(this, Path.of(snapshotPath));
+        dataReplaced();
+        System.out.println(">>> Snapshot Loaded! Patients: " + patients.size() + ", Doctors: " + doctors.size());
+    }
+
+    private static String extractValue(String text, String key) {
+        int index = text.indexOf(key);
+        if (index == -1) return null;
+
+        String sub = text.substring(index + key.length()).trim();
+        int commaIndex = sub.indexOf(",");
+
+        if (commaIndex != -1 && !key.equals("Patient takes:")) {
+            return sub.substring(0, commaIndex).trim();
+        }
+        return sub;
+    }
+
+    private static String extractRegex(String text, Pattern p) {
+        Matcher m = p.matcher(text);
+        if (m.find()) return m.group(1);
+        return null;
+    }
+
+    public Doctor getDoctorByName(String name) {
+        // A tail follower may be adding doctors at the same time
+        stateLock.readLock().lock();
+        try {
+            return doctors.get(name);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // --- IClinic Implementation ---
+    @Override
+    public void addAppointment(Patient p, Doctor d, LocalDateTime date) {
+        if(book(p, d, date, "Manual").isBooked())
+            System.out.println("Booked.");
+        else
+            System.out.println("Busy.");
+    }
+
+    /**
+     * Books a slot atomically and logs it to the journal, if one is open.
+     * Safe to call from many threads at once.
+     * @param p The patient.
+     * @param d The doctor.
+     * @param date The requested slot.
+     * @param reason Reason of the visit (not null).
+     * @return The booking result.
+     */
+    public BookingResult book(Patient p, Doctor d, LocalDateTime date, String reason) {
+        Staff receptionist = new Staff("Reception") {};
+        BookingResult result;
+        long lsn = -1;
+        ClinicJournal log;
+        stateLock.readLock().lock();
+        try {
+            log = journal;
+            // Holding the doctor's monitor keeps the journal in calendar order
+            synchronized (d) {
+                result = receptionist.book(p, d, date, reason);
+                if (result.isBooked() && log != null) {
+                    lsn = logged(() -> log.logAppointment(result.getAppointment()));
+                }
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        // Wait for the disk outside the lock, so concurrent bookings share one fsync
+        if (lsn != -1) awaitDurable(log, lsn);
+        return result;
+    }
+
+    @Override
+    public void displayPatientAppointments(Patient p) {
+        System.out.print(queryCache.get(List.of("appointments", p), List.of(List.of(TAG_APPOINTMENTS_OF, p)), () -> {
+            StringBuilder out = new StringBuilder("\n--- Appointments for: " + p.getName() + " ---\n");
+            for (Appointment a : p.getAppointments()) out.append(a).append('\n');
+            return out.toString();
+        }));
+    }
+
+    @Override
+    public void displayDoctorCalendar(Doctor d) {
+        displayCalendarRange(d, "", LocalDateTime.MIN, LocalDateTime.MAX);
+    }
+
+    /**
+     * Displays a doctor's appointments on one day.
+     * @param d The doctor.
+     * @param day The day to show.
+     */
+    public void displayDoctorDay(Doctor d, LocalDate day) {
+        displayCalendarRange(d, " on " + day, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Displays a doctor's appointments in the 7 days starting at the given day.
+     * @param d The doctor.
+     * @param weekStart First day of the week.
+     */
+    public void displayDoctorWeek(Doctor d, LocalDate weekStart) {
+        displayCalendarRange(d, " in week of " + weekStart, weekStart.atStartOfDay(), weekStart.plusDays(7).atStartOfDay());
+    }
+
+    private void displayCalendarRange(Doctor d, String title, LocalDateTime from, LocalDateTime to) {
+        // Rendered once into a buffer and printed with a single write instead of a println per line
+        List<Object> key = List.of("calendar", d, title, from, to);
+        System.out.print(queryCache.get(key, List.of(List.of(TAG_CALENDAR, d)), () -> {
+            StringBuilder out = new StringBuilder("\n--- Calendar for Dr. " + d.getName() + title + " ---\n");
+            Iterator<List<Appointment>> pages = d.getCalendarPages(from, to, CALENDAR_PAGE_SIZE);
+            while (pages.hasNext()) {
+                for (Appointment a : pages.next()) out.append(a).append('\n');
+            }
+            return out.toString();
+        }));
+    }
+
+    @Override
+    public void addPrescription(Patient p, Prescription pre) {
+        long lsn = -1;
+        ClinicJournal log;
+        stateLock.readLock().lock();
+        try {
+            log = journal;
+            synchronized (p) {
+                applyPrescription(p, pre);
+                if (log != null) lsn = logged(() -> log.logPrescription(p, pre));
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (lsn != -1) awaitDurable(log, lsn);
+    }
+
+    private interface JournalWrite {
+        long run() throws IOException;
+    }
+
+    private static long logged(JournalWrite write) {
+        try {
+            return write.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the journal", e);
+        }
+    }
+
+    private static void awaitDurable(ClinicJournal log, long lsn) {
+        try {
+            log.awaitDurable(lsn);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the journal", e);
+        }
+    }
+
+    @Override
+    public void displayPatientPrescriptions(Patient p) {
+        System.out.print(queryCache.get(List.of("prescriptions", p), List.of(List.of(TAG_PRESCRIPTIONS_OF, p)), () -> {
+            StringBuilder out = new StringBuilder("\n--- Prescriptions for: " + p.getName() + " ---\n");
+            for (Prescription pre : p.getPrescriptions()) out.append(pre).append('\n');
+            return out.toString();
+        }));
+    }
+
+    @Override
+    public List<Patient> findPatientsByMedicineAndDoctor(String medicineName, Doctor doc) {
+        List<Object> key = List.of("find", medicineName.toLowerCase(), doc);
+        @SuppressWarnings("unchecked")
+        List<Patient> found = (List<Patient>) queryCache.get(key, List.of(List.of(TAG_PRESCRIPTIONS_BY, doc)),
+                () -> Collections.unmodifiableList(medicineIndex.find(medicineName, doc)));
+        return found;
+    }
+
+    @Override
+    public Map<Patient, List<Appointment>> getPatientAppointments(Collection<Patient> patients) {
+        return batch(patients, Patient::getAppointments);
+    }
+
+    @Override
+    public Map<Doctor, List<Appointment>> getDoctorCalendars(Collection<Doctor> doctors) {
+        return batch(doctors, Doctor::getAppointments);
+    }
+
+    @Override
+    public Map<Patient, List<Prescription>> getPatientPrescriptions(Collection<Patient> patients) {
+        return batch(patients, Patient::getPrescriptions);
+    }
+
+    @Override
+    public Map<MedicineQuery, List<Patient>> findPatientsByMedicineAndDoctor(Collection<MedicineQuery> queries) {
+        return medicineIndex.findAll(queries);
+    }
+
+    /**
+     * Answers every distinct key in parallel. Each key only locks its own doctor or
+     * patient, so the lookups do not contend with each other.
+     */
+    private static <K, V> Map<K, V> batch(Collection<K> keys, Function<K, V> lookup) {
+        return keys.parallelStream().distinct()
+                .collect(Collectors.toMap(k -> k, lookup, (a, b) -> a, LinkedHashMap::new));
+    }
+}
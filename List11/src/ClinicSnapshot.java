@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the whole clinic state.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * header:  magic int, version int, journal LSN long, body length long, CRC32 of body long
+ * body:    strings       count, then [byte length int, UTF-8 bytes]
+ *          doctors       count, then [name id]
+ *          patients      count, then [name id, contact id, age]
+ *          appointments  count, then [epoch second long, nano int, doctor, patient, reason id],
+ *                        grouped by doctor in calendar order
+ *          per patient   appointment count, then appointment indexes,
+ *                        prescription count, then [doctor, treatment count, [is medicine byte, text id]]
+ * </pre>
+ * Every string (names, contacts, reasons, medicine names) is stored once in the
+ * dictionary and referenced by its index. Doctors, patients and appointments are
+ * referenced by their position in their section. The journal LSN tells which
+ * {@link ClinicJournal} records are already contained in the snapshot.
+ */
+class ClinicSnapshot {
+    private static final int MAGIC = 0x434C4E43; // "CLNC"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8;
+
+    private ClinicSnapshot() {
+    }
+
+    /**
+     * The clinic state a snapshot is written from: the doctors and patients, numbered in file order,
+     * and copies of their appointment and prescription lists. Appointments and prescriptions are not
+     * changed once added, so copying the lists is enough for a consistent view.
+     */
+    static final class Image {
+        private final long journalLsn;
+        private final Map<Doctor, Integer> doctorIds = new LinkedHashMap<>();
+        private final Map<Patient, Integer> patientIds = new LinkedHashMap<>();
+        private final List<Doctor> doctors = new ArrayList<>();
+        private final List<Patient> patients = new ArrayList<>();
+        // Indexed like doctors and patients
+        private final List<List<Appointment>> calendars = new ArrayList<>();
+        private final List<List<Appointment>> appointments = new ArrayList<>();
+        private final List<List<Prescription>> prescriptions = new ArrayList<>();
+
+        private Image(long journalLsn) {
+            this.journalLsn = journalLsn;
+        }
+
+        long getJournalLsn() {
+            return journalLsn;
+        }
+    }
+
+    /**
+     * Copies the state to save. This is the only part of saving that must see a clinic no one
+     * changes; {@link #write(Image, Path)} can then run while bookings continue.
+     * @param clinic The clinic to save.
+     * @param journalLsn LSN of the last journal record contained in the clinic state.
+     * @return The copied state.
+     */
+    static Image capture(ClinicManager clinic, long journalLsn) {
+        Image image = new Image(journalLsn);
+        // Number doctors and patients, including ones only referenced by appointments
+        // or prescriptions (e.g. booked manually without being in the registries)
+        for (Doctor d : clinic.getDoctors()) number(image.doctorIds, image.doctors, d);
+        for (Patient p : clinic.getPatients()) number(image.patientIds, image.patients, p);
+        int doneDoctors = 0, donePatients = 0;
+        while (doneDoctors < image.doctors.size() || donePatients < image.patients.size()) {
+            for (; doneDoctors < image.doctors.size(); doneDoctors++) {
+                List<Appointment> calendar = image.doctors.get(doneDoctors).getAppointments();
+                image.calendars.add(calendar);
+                for (Appointment a : calendar) number(image.patientIds, image.patients, a.getPatient());
+            }
+            for (; donePatients < image.patients.size(); donePatients++) {
+                Patient p = image.patients.get(donePatients);
+                List<Appointment> appointments = p.getAppointments();
+                List<Prescription> prescriptions = p.getPrescriptions();
+                image.appointments.add(appointments);
+                image.prescriptions.add(prescriptions);
+                for (Appointment a : appointments) number(image.doctorIds, image.doctors, a.getDoctor());
+                for (Prescription pre : prescriptions) number(image.doctorIds, image.doctors, pre.getDoctor());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Writes a captured clinic state to a snapshot file.
+     * @param image The state from {@link #capture(ClinicManager, long)}.
+     * @param path Target file (overwritten).
+     * @throws IOException if writing fails.
+     */
+    static void write(Image image, Path path) throws IOException {
+        List<Doctor> doctors = image.doctors;
+        List<Patient> patients = image.patients;
+
+        // Build the string dictionary
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (Doctor d : doctors) intern(strings, d.getName());
+        for (int i = 0; i < patients.size(); i++) {
+            Patient p = patients.get(i);
+            intern(strings, p.getName());
+            intern(strings, p.getContactInfo());
+            for (Prescription pre : image.prescriptions.get(i)) {
+                for (Treatment t : pre.getTreatments()) intern(strings, t.getDescription());
+            }
+        }
+        for (List<Appointment> calendar : image.calendars) {
+            for (Appointment a : calendar) intern(strings, a.getReason());
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel, HEADER_SIZE);
+
+            out.putInt(strings.size());
+            for (String s : strings.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length);
+                out.put(bytes);
+            }
+
+            out.putInt(doctors.size());
+            for (Doctor d : doctors) out.putInt(strings.get(d.getName()));
+
+            out.putInt(patients.size());
+            for (Patient p : patients) {
+                out.putInt(strings.get(p.getName()));
+                out.putInt(strings.get(p.getContactInfo()));
+                out.putInt(p.getAge());
+            }
+
+            Map<Appointment, Integer> appointmentIds = new IdentityHashMap<>();
+            int appointmentCount = 0;
+            for (List<Appointment> calendar : image.calendars) appointmentCount += calendar.size();
+            out.putInt(appointmentCount);
+            for (int d = 0; d < doctors.size(); d++) {
+                for (Appointment a : image.calendars.get(d)) {
+                    appointmentIds.put(a, appointmentIds.size());
+                    out.putLong(a.getDate().toEpochSecond(ZoneOffset.UTC));
+                    out.putInt(a.getDate().getNano());
+                    out.putInt(d);
+                    out.putInt(image.patientIds.get(a.getPatient()));
+                    out.putInt(strings.get(a.getReason()));
+                }
+            }
+
+            for (int p = 0; p < patients.size(); p++) {
+                out.putInt(image.appointments.get(p).size());
+                for (Appointment a : image.appointments.get(p)) out.putInt(appointmentIds.get(a));
+                out.putInt(image.prescriptions.get(p).size());
+                for (Prescription pre : image.prescriptions.get(p)) {
+                    out.putInt(image.doctorIds.get(pre.getDoctor()));
+                    out.putInt(pre.getTreatments().size());
+                    for (Treatment t : pre.getTreatments()) {
+                        out.put((byte) (t instanceof Medicine ? 1 : 0));
+                        out.putInt(strings.get(t.getDescription()));
+                    }
+                }
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(image.journalLsn).putLong(out.bodyLength).putLong(out.crc.getValue()).flip();
+            while (header.hasRemaining()) channel.write(header, header.position());
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads a snapshot into an empty clinic.
+     * @param clinic The clinic to fill.
+     * @param path Snapshot file.
+     * @return LSN of the last journal record contained in the snapshot.
+     * @throws IOException if the file cannot be read, has another version or a bad checksum,
+     *         or its content is inconsistent.
+     */
+    static long read(ClinicManager clinic, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) throw new IOException("Snapshot too short");
+            if (size > Integer.MAX_VALUE) throw new IOException("Snapshot larger than 2 GB");
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (in.getInt() != MAGIC) throw new IOException("Not a clinic snapshot");
+            int version = in.getInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+            long journalLsn = in.getLong();
+            long bodyLength = in.getLong();
+            long checksum = in.getLong();
+            if (bodyLength != size - HEADER_SIZE) throw new IOException("Snapshot truncated");
+
+            CRC32 crc = new CRC32();
+            crc.update(in.slice());
+            if (crc.getValue() != checksum) throw new IOException("Snapshot checksum mismatch");
+
+            // The checksum only proves the bytes are intact; a snapshot that still does not describe
+            // a valid clinic (a duplicate slot, an index out of range) is reported like a corrupt one
+            try {
+                String[] strings = new String[in.getInt()];
+                for (int i = 0; i < strings.length; i++) {
+                    byte[] bytes = new byte[in.getInt()];
+                    in.get(bytes);
+                    strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+
+                Doctor[] doctors = new Doctor[in.getInt()];
+                for (int i = 0; i < doctors.length; i++) doctors[i] = clinic.getOrCreateDoctor(strings[in.getInt()]);
+
+                Patient[] patients = new Patient[in.getInt()];
+                for (int i = 0; i < patients.length; i++) {
+                    String name = strings[in.getInt()];
+                    String contact = strings[in.getInt()];
+                    patients[i] = clinic.getOrCreatePatient(name, contact, in.getInt());
+                }
+
+                Appointment[] appointments = new Appointment[in.getInt()];
+                for (int i = 0; i < appointments.length; i++) {
+                    LocalDateTime date = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+                    Doctor doc = doctors[in.getInt()];
+                    Patient patient = patients[in.getInt()];
+                    appointments[i] = new Appointment(date, patient, doc, strings[in.getInt()]);
+                    doc.addAppointment(appointments[i]);
+                }
+
+                for (Patient p : patients) {
+                    int appointmentCount = in.getInt();
+                    for (int i = 0; i < appointmentCount; i++) p.addAppointment(appointments[in.getInt()]);
+                    int prescriptionCount = in.getInt();
+                    for (int i = 0; i < prescriptionCount; i++) {
+                        Prescription pre = new Prescription(doctors[in.getInt()], p);
+                        int treatmentCount = in.getInt();
+                        for (int j = 0; j < treatmentCount; j++) {
+                            boolean medicine = in.get() == 1;
+                            String text = strings[in.getInt()];
+                            pre.addTreatment(medicine ? new Medicine(text) : new Treatment(text));
+                        }
+                        clinic.applyPrescription(p, pre);
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Snapshot inconsistent: " + e.getMessage(), e);
+            }
+            return journalLsn;
+        }
+    }
+
+    private static <T> void number(Map<T, Integer> ids, List<T> order, T item) {
+        if (ids.putIfAbsent(item, order.size()) == null) order.add(item);
+    }
+
+    private static void intern(Map<String, Integer> strings, String s) {
+        strings.putIfAbsent(s, strings.size());
+    }
+
+    /**
+     * Buffered channel writer that keeps a running CRC32 of everything written.
+     */
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private final CRC32 crc = new CRC32();
+        private long position;
+        private long bodyLength;
+
+        Output(FileChannel channel, long start) {
+            this.channel = channel;
+            this.position = start;
+        }
+
+        void putInt(int v) throws IOException { ensure(4); buffer.putInt(v); }
+        void putLong(long v) throws IOException { ensure(8); buffer.putLong(v); }
+        void put(byte v) throws IOException { ensure(1); buffer.put(v); }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            bodyLength += buffer.remaining();
+            while (buffer.hasRemaining()) position += channel.write(buffer, position);
+            buffer.clear();
+        }
+    }
+}
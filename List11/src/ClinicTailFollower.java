@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Follows a CSV file that keeps growing and applies new lines to a live clinic.
+ * <p>
+ * The follower remembers the byte offset just after the last complete line it applied.
+ * Every poll reads what was appended since then, in large blocks, and applies the
+ * complete lines as one batch through {@link ClinicManager#applyLines}. A line that is
+ * still being written (no trailing newline yet) is left for the next poll. If the file
+ * becomes shorter than the offset, it was truncated, and following starts again from the
+ * beginning. The same happens when the path names another file than at the previous poll
+ * (another file key, or creation time where the file system has no keys), so a file replaced
+ * by a larger one is read from its start too.
+ * <p>
+ * Ingest lag is measured per batch as the time from the previous poll (the earliest
+ * moment the new lines can have been noticed missing) to the end of the batch, so it is
+ * an upper bound of the real delay between an append and its rows being queryable.
+ */
+class ClinicTailFollower implements AutoCloseable {
+    private static final int BLOCK_SIZE = 1 << 20;
+    // Longest pause after repeated errors; the pause doubles from the poll interval up to it
+    private static final long MAX_ERROR_BACKOFF_MILLIS = 30_000;
+
+    private final ClinicManager clinic;
+    private final Path file;
+    private final IngestReport report;
+    private ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+    private long offset;
+    // File key (or creation time) of the file the offset belongs to; null before the first poll
+    private Object identity;
+    private long lastPollNanos = System.nanoTime();
+
+    private long lines;
+    private long batches;
+    private long lastLagNanos;
+    private long maxLagNanos;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Constructs a follower that starts at the given offset.
+     * @param clinic The clinic that receives the new lines.
+     * @param file The followed CSV file.
+     * @param startOffset Byte offset of the first unread line (0 for the whole file,
+     *                    the file size to skip what was already loaded).
+     * @param report Receives accepted and rejected lines.
+     */
+    public ClinicTailFollower(ClinicManager clinic, Path file, long startOffset, IngestReport report) {
+        this.clinic = clinic;
+        this.file = file;
+        this.offset = startOffset;
+        this.report = report;
+    }
+
+    /**
+     * Applies every complete line appended since the last poll.
+     * @return Number of lines applied (including rejected ones).
+     * @throws IOException if the file cannot be read or the quarantine cannot be written.
+     */
+    public synchronized int poll() throws IOException {
+        long pollStart = System.nanoTime();
+        long since = lastPollNanos;
+        lastPollNanos = pollStart;
+
+        int applied = 0;
+        try {
+            Object before = identityOf(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // Replaced between the two looks: which file the channel has is unknown
+                if (!before.equals(identityOf(file))) return 0;
+                if (identity != null && !identity.equals(before)) offset = 0;
+                identity = before;
+                applied = readNewLines(channel);
+            }
+        } catch (NoSuchFileException e) {
+            // Not created yet, or being replaced; try again on the next poll
+            return 0;
+        }
+
+        if (applied > 0) {
+            lines += applied;
+            batches++;
+            lastLagNanos = System.nanoTime() - since;
+            maxLagNanos = Math.max(maxLagNanos, lastLagNanos);
+        }
+        return applied;
+    }
+
+    private int readNewLines(FileChannel channel) throws IOException {
+        int applied = 0;
+        long size = channel.size();
+        if (size < offset) offset = 0;
+
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) break;
+
+            int end = lastNewline(buffer.array(), buffer.position());
+            if (end == -1) {
+                // One line longer than the buffer, or a line still being written
+                if (buffer.position() < buffer.capacity()) break;
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                continue;
+            }
+            List<String> batch = splitLines(buffer.array(), end + 1);
+            clinic.applyLines(batch, report);
+            applied += batch.size();
+            offset += end + 1;
+        }
+        return applied;
+    }
+
+    private static Object identityOf(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        // Without file keys the creation time is the best guess; the modification time would change on every append
+        Object key = attributes.fileKey();
+        return (key != null) ? key : attributes.creationTime();
+    }
+
+    /**
+     * Polls the file on a background daemon thread until {@link #close()} is called.
+     * Errors, including failures while applying lines, are printed and following continues
+     * after a pause, which doubles with every further error in a row, so an unreadable file
+     * does not flood the output.
+     * @param intervalMillis Pause between polls that found nothing new, and after a first error.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (thread != null) return;
+        running = true;
+        thread = new Thread(() -> {
+            long errorPause = intervalMillis;
+            while (running) {
+                try {
+                    if (poll() == 0) Thread.sleep(intervalMillis);
+                    errorPause = intervalMillis;
+                } catch (InterruptedException | ClosedByInterruptException e) {
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    // A runtime failure would otherwise end the thread without a trace
+                    System.out.println("ERROR: Following " + file + " failed: " + e
+                            + " (retrying in " + errorPause + " ms)");
+                    try {
+                        Thread.sleep(errorPause);
+                    } catch (InterruptedException stop) {
+                        return;
+                    }
+                    errorPause = Math.min(Math.max(1, errorPause) * 2, Math.max(intervalMillis, MAX_ERROR_BACKOFF_MILLIS));
+                }
+            }
+        }, "clinic-tail-follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the background thread, if one was started.
+     */
+    @Override
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+            running = false;
+        }
+        if (t == null) return;
+        t.interrupt();
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized long getOffset() { return offset; }
+    public synchronized long getLines() { return lines; }
+    public synchronized long getBatches() { return batches; }
+    public synchronized long getLastLagMillis() { return lastLagNanos / 1_000_000; }
+    public synchronized long getMaxLagMillis() { return maxLagNanos / 1_000_000; }
+
+    private static int lastNewline(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static List<String> splitLines(byte[] bytes, int length) {
+        List<String> out = new ArrayList<>();
+        int from = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == '\n') {
+                out.add(new String(bytes, from, i - from, StandardCharsets.UTF_8));
+                from = i + 1;
+            }
+        }
+        return out;
+    }
+}
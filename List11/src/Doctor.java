@@ -0,0 +1,150 @@
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Represents a Doctor who can examine patients and issue prescriptions.
+ */
+class Doctor extends Staff {
+    // Calendar kept sorted by slot on insert, so displaying it never sorts.
+    // Guarded by this doctor's monitor, so bookings of different doctors never contend
+    private NavigableMap<LocalDateTime, Appointment> calendar = new TreeMap<>();
+    // Where to continue probing after a taken slot, compressed like union-find so a long
+    // run of taken slots is skipped in one step. Valid because slots are never freed.
+    private final Map<LocalDateTime, LocalDateTime> nextProbe = new HashMap<>();
+    private ClinicManager clinic;
+
+    public Doctor(String name) { super(name); }
+
+    /**
+     * Attaches the clinic this doctor works for. The clinic is told about new
+     * bookings and prescriptions, to keep its medicine index and query cache current.
+     * @param clinic The clinic.
+     */
+    void setClinic(ClinicManager clinic) { this.clinic = clinic; }
+
+    /**
+     * Called once a booking is in both the doctor's and the patient's calendar.
+     * @param a The new appointment.
+     */
+    void bookingCompleted(Appointment a) {
+        if (clinic != null) clinic.appointmentAdded(a);
+    }
+
+    /**
+     * Checks if the doctor is available at a given time slot.
+     * @param checkDate The date and time to check.
+     * @return true if available, false if slot is occupied.
+     */
+    public synchronized boolean isAvailable(LocalDateTime checkDate) {
+        return !calendar.containsKey(checkDate);
+    }
+
+    /**
+     * Finds the first free slot at or after the requested one, in steps of 30 minutes.
+     * @param requested The requested slot.
+     * @return The first free slot.
+     */
+    public synchronized LocalDateTime findFreeSlot(LocalDateTime requested) {
+        LocalDateTime slot = requested;
+        List<LocalDateTime> path = null;
+        while (calendar.containsKey(slot)) {
+            if (path == null) path = new ArrayList<>();
+            path.add(slot);
+            LocalDateTime next = nextProbe.get(slot);
+            slot = (next != null) ? next : slot.plusMinutes(30);
+        }
+        if (path != null) {
+            for (LocalDateTime taken : path) nextProbe.put(taken, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Checks the slot and books it in one atomic step.
+     * @param p The patient.
+     * @param date The requested slot.
+     * @param reason Reason of the visit (not null).
+     * @return The new appointment, or null if the slot is already taken.
+     */
+    public synchronized Appointment tryBook(Patient p, LocalDateTime date, String reason) {
+        if (calendar.containsKey(date)) return null;
+        Appointment a = new Appointment(date, p, this, reason);
+        calendar.put(date, a);
+        return a;
+    }
+
+    /**
+     * Adds an appointment whose slot is known to be free.
+     * @param a The appointment.
+     * @throws IllegalStateException if the slot is already taken.
+     */
+    public synchronized void addAppointment(Appointment a) {
+        if (calendar.putIfAbsent(a.getDate(), a) != null) {
+            throw new IllegalStateException("Slot already taken: " + a);
+        }
+    }
+
+    /**
+     * @return A copy of all appointments, sorted by date.
+     */
+    public synchronized List<Appointment> getAppointments() { return new ArrayList<>(calendar.values()); }
+
+    /**
+     * Iterates over the appointments in [from, to) in date order, one page at a time.
+     * Each page is read under the doctor's lock, and the next page continues after the
+     * last returned slot, so bookings made while paging do not break the iteration.
+     * @param from Start of the range (inclusive).
+     * @param to End of the range (exclusive).
+     * @param pageSize Maximum number of appointments per page.
+     * @return Iterator over non-empty pages.
+     */
+    public Iterator<List<Appointment>> getCalendarPages(LocalDateTime from, LocalDateTime to, int pageSize) {
+        return new Iterator<List<Appointment>>() {
+            private LocalDateTime cursor = from;
+            private boolean inclusive = true;
+            private List<Appointment> next = fetch();
+
+            private List<Appointment> fetch() {
+                List<Appointment> page = new ArrayList<>(Math.min(pageSize, 64));
+                synchronized (Doctor.this) {
+                    for (Appointment a : calendar.subMap(cursor, inclusive, to, false).values()) {
+                        page.add(a);
+                        if (page.size() == pageSize) break;
+                    }
+                }
+                if (!page.isEmpty()) {
+                    cursor = page.get(page.size() - 1).getDate();
+                    inclusive = false;
+                }
+                return page;
+            }
+
+            @Override
+            public boolean hasNext() { return !next.isEmpty(); }
+
+            @Override
+            public List<Appointment> next() {
+                if (next.isEmpty()) throw new NoSuchElementException();
+                List<Appointment> page = next;
+                next = (page.size() < pageSize) ? Collections.emptyList() : fetch();
+                return page;
+            }
+        };
+    }
+
+    /**
+     * Creates a new prescription for a patient.
+     * @param p The patient.
+     * @param medicineNames List of medicine names to include.
+     * @return The created Prescription object.
+     */
+    public Prescription createPrescription(Patient p, List<String> medicineNames) {
+        Prescription pres = new Prescription(this, p);
+        for (String medName : medicineNames) {
+            pres.addTreatment(new Medicine(medName.trim()));
+        }
+        p.addPrescription(pres);
+        if (clinic != null) clinic.prescriptionAdded(p, pres);
+        return pres;
+    }
+}
@@ -0,0 +1,81 @@
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Main interface for the Clinic System.
+ * Defines all major operations available in the clinic.
+ */
+interface IClinic {
+    /**
+     * Schedules a new appointment.
+     * @param p The patient booking the visit.
+     * @param d The doctor performing the visit.
+     * @param date The date and time of the visit.
+     */
+    void addAppointment(Patient p, Doctor d, LocalDateTime date);
+
+    /**
+     * Displays all scheduled appointments for a specific patient.
+     * @param p The patient whose appointments should be displayed.
+     */
+    void displayPatientAppointments(Patient p);
+
+    /**
+     * Displays the schedule/calendar for a specific doctor.
+     * @param d The doctor whose calendar should be displayed.
+     */
+    void displayDoctorCalendar(Doctor d);
+
+    /**
+     * Adds a prescription to a patient's medical record.
+     * @param p The patient receiving the prescription.
+     * @param pre The prescription object.
+     */
+    void addPrescription(Patient p, Prescription pre);
+
+    /**
+     * Displays all prescriptions belonging to a specific patient.
+     * @param p The patient.
+     */
+    void displayPatientPrescriptions(Patient p);
+
+    /**
+     * Searches for patients who have been prescribed a specific medicine by a specific doctor.
+     * The name is matched case-insensitively as a substring of the medicine name.
+     * @param medicineName The name of the medicine (e.g., "Ibuprofen").
+     * @param doc The doctor who issued the prescription.
+     * @return Matching patients, each listed once.
+     */
+    List<Patient> findPatientsByMedicineAndDoctor(String medicineName, Doctor doc);
+
+    // --- Batch queries: structured results instead of printing, one call for many keys ---
+
+    /**
+     * Returns the appointments of many patients at once.
+     * @param patients The patients (duplicates are answered once).
+     * @return Appointments per patient, in the order of the first occurrence of each patient.
+     */
+    Map<Patient, List<Appointment>> getPatientAppointments(Collection<Patient> patients);
+
+    /**
+     * Returns the calendars of many doctors at once.
+     * @param doctors The doctors (duplicates are answered once).
+     * @return Appointments per doctor sorted by date, in the order of the first occurrence of each doctor.
+     */
+    Map<Doctor, List<Appointment>> getDoctorCalendars(Collection<Doctor> doctors);
+
+    /**
+     * Returns the prescriptions of many patients at once.
+     * @param patients The patients (duplicates are answered once).
+     * @return Prescriptions per patient, in the order of the first occurrence of each patient.
+     */
+    Map<Patient, List<Prescription>> getPatientPrescriptions(Collection<Patient> patients);
+
+    /**
+     * Runs many medicine/doctor searches at once. Queries for the same medicine text
+     * share one lookup of the matching medicine names.
+     * @param queries The searches (duplicates are answered once).
+     * @return Matching patients per query, in the order of the first occurrence of each query.
+     */
+    Map<MedicineQuery, List<Patient>> findPatientsByMedicineAndDoctor(Collection<MedicineQuery> queries);
+}
@@ -0,0 +1,60 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Counts accepted and rejected lines of one ingest, by error category,
+ * and streams rejected lines to an optional quarantine file.
+ * <p>
+ * Quarantine lines have the form {@code CATEGORY<TAB>original line}, so they can be
+ * fixed and loaded again.
+ */
+class IngestReport {
+    private final Writer quarantine;
+    private final long[] rejected = new long[ParseError.values().length];
+    private long accepted;
+
+    /**
+     * Constructs a new report.
+     * @param quarantine Buffered writer for rejected lines, or null to only count them.
+     */
+    public IngestReport(Writer quarantine) {
+        this.quarantine = quarantine;
+    }
+
+    void accept() {
+        accepted++;
+    }
+
+    void reject(ParseError error, String line) throws IOException {
+        rejected[error.ordinal()]++;
+        if (quarantine != null) {
+            quarantine.write(error.name());
+            quarantine.write('\t');
+            quarantine.write(line);
+            quarantine.write('\n');
+        }
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getRejected() {
+        long total = 0;
+        for (long r : rejected) total += r;
+        return total;
+    }
+
+    public long getRejected(ParseError error) {
+        return rejected[error.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("accepted=" + accepted + ", rejected=" + getRejected());
+        for (ParseError e : ParseError.values()) {
+            if (rejected[e.ordinal()] > 0) sb.append(", ").append(e).append('=').append(rejected[e.ordinal()]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,4 @@
+class Medicine extends Treatment {
+    public Medicine(String name) { super(name); }
+    @Override public String toString() { return "Medicine: " + getDescription(); }
+}
@@ -0,0 +1,119 @@
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index from medicine name to doctor to the patients who got it.
+ * <p>
+ * Names are stored lowercased. Every name is also split into trigrams, so a
+ * substring query only has to check names sharing its rarest trigram instead of
+ * walking every patient and prescription.
+ */
+class MedicineIndex {
+    private static final int GRAM = 3;
+
+    private final Map<String, Map<Doctor, Set<Patient>>> byMedicine = new HashMap<>();
+    private final Map<String, Set<String>> namesByGram = new HashMap<>();
+    // Lowercased name per dictionary id, so indexing does not lowercase every treatment
+    private final Map<Integer, String> normalizedById = new HashMap<>();
+
+    /**
+     * Indexes every treatment of a prescription that was given to a patient.
+     * @param p The patient holding the prescription.
+     * @param pre The prescription.
+     */
+    public synchronized void add(Patient p, Prescription pre) {
+        for (Treatment t : pre.getTreatments()) {
+            String name = normalizedById.computeIfAbsent(t.getDescriptionId(), id -> normalize(t.getDescription()));
+            Map<Doctor, Set<Patient>> byDoctor = byMedicine.get(name);
+            if (byDoctor == null) {
+                byDoctor = new HashMap<>();
+                byMedicine.put(name, byDoctor);
+                for (int i = 0; i + GRAM <= name.length(); i++) {
+                    namesByGram.computeIfAbsent(name.substring(i, i + GRAM), g -> new HashSet<>()).add(name);
+                }
+            }
+            byDoctor.computeIfAbsent(pre.getDoctor(), d -> new LinkedHashSet<>()).add(p);
+        }
+    }
+
+    /**
+     * Finds patients who got a medicine containing the given text from a doctor.
+     * Matching is case-insensitive.
+     * @param medicineName Text to look for in medicine names.
+     * @param doc The doctor who issued the prescription.
+     * @return Matching patients, each listed once.
+     */
+    public synchronized List<Patient> find(String medicineName, Doctor doc) {
+        String query = normalize(medicineName);
+        Set<Patient> result = new LinkedHashSet<>();
+        for (String name : candidates(query)) {
+            if (!name.contains(query)) continue;
+            Set<Patient> found = byMedicine.get(name).get(doc);
+            if (found != null) result.addAll(found);
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Runs many searches under one lock. Queries are grouped by medicine text, so the
+     * matching medicine names are looked up once per text; the groups run in parallel.
+     * @param queries The searches.
+     * @return Matching patients per distinct query, in the order of first occurrence.
+     */
+    public synchronized Map<MedicineQuery, List<Patient>> findAll(Collection<MedicineQuery> queries) {
+        Map<String, List<MedicineQuery>> byText = new LinkedHashMap<>();
+        for (MedicineQuery q : queries) {
+            byText.computeIfAbsent(normalize(q.getMedicineName()), t -> new ArrayList<>()).add(q);
+        }
+
+        // The workers only read; holding this monitor keeps writers out until all are done
+        List<Map<MedicineQuery, List<Patient>>> groups = byText.entrySet().parallelStream().map(group -> {
+            String query = group.getKey();
+            List<Map<Doctor, Set<Patient>>> matching = new ArrayList<>();
+            for (String name : candidates(query)) {
+                if (name.contains(query)) matching.add(byMedicine.get(name));
+            }
+            Map<MedicineQuery, List<Patient>> answers = new HashMap<>();
+            for (MedicineQuery q : group.getValue()) {
+                if (answers.containsKey(q)) continue;
+                Set<Patient> result = new LinkedHashSet<>();
+                for (Map<Doctor, Set<Patient>> byDoctor : matching) {
+                    Set<Patient> found = byDoctor.get(q.getDoctor());
+                    if (found != null) result.addAll(found);
+                }
+                answers.put(q, new ArrayList<>(result));
+            }
+            return answers;
+        }).collect(Collectors.toList());
+
+        Map<String, Map<MedicineQuery, List<Patient>>> answersByText = new HashMap<>();
+        int g = 0;
+        for (String text : byText.keySet()) answersByText.put(text, groups.get(g++));
+
+        Map<MedicineQuery, List<Patient>> out = new LinkedHashMap<>();
+        for (MedicineQuery q : queries) {
+            out.computeIfAbsent(q, k -> answersByText.get(normalize(k.getMedicineName())).get(k));
+        }
+        return out;
+    }
+
+    /**
+     * Names that may contain the query: those sharing its rarest trigram,
+     * or every name when the query is shorter than a trigram.
+     */
+    private Collection<String> candidates(String query) {
+        if (query.length() < GRAM) return byMedicine.keySet();
+
+        Set<String> best = null;
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            Set<String> names = namesByGram.get(query.substring(i, i + GRAM));
+            if (names == null) return Collections.emptySet();
+            if (best == null || names.size() < best.size()) best = names;
+        }
+        return best;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase();
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.*;
+
+/**
+ * One search of a batch {@link IClinic#findPatientsByMedicineAndDoctor(Collection)}:
+ * patients who got a medicine containing the text from the doctor.
+ */
+class MedicineQuery {
+    private final String medicineName;
+    private final Doctor doctor;
+
+    /**
+     * Constructs a new query.
+     * @param medicineName Text to look for in medicine names (case-insensitive).
+     * @param doctor The doctor who issued the prescription.
+     */
+    public MedicineQuery(String medicineName, Doctor doctor) {
+        this.medicineName = medicineName;
+        this.doctor = doctor;
+    }
+
+    public String getMedicineName() { return medicineName; }
+    public Doctor getDoctor() { return doctor; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof MedicineQuery)) return false;
+        MedicineQuery q = (MedicineQuery) o;
+        return medicineName.equals(q.medicineName) && doctor == q.doctor;
+    }
+
+    @Override
+    public int hashCode() {
+        return medicineName.hashCode() * 31 + System.identityHashCode(doctor);
+    }
+
+    @Override
+    public String toString() {
+        return medicineName + " by Dr. " + doctor.getName();
+    }
+}
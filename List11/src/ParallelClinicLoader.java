@@ -0,0 +1,265 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the clinic CSV file on several threads.
+ * <p>
+ * The file is split into byte ranges cut at line boundaries. Each worker parses its
+ * range into {@link ParsedRecord}s. Doctors and patients are then registered in file
+ * order, so the first line of a patient still decides their age. Slot resolution only
+ * depends on earlier appointments of the same doctor, so doctors are sharded across
+ * the workers and each shard books its records in file order. Finally appointments and
+ * prescriptions are linked to patients in file order, which gives exactly the same
+ * state as {@link ClinicManager#loadDataFromFile(String)}.
+ */
+class ParallelClinicLoader {
+    // Largest byte range parsed as one String; larger files are cut into more chunks
+    private static final long MAX_CHUNK_BYTES = 64L * 1024 * 1024;
+
+    private final ClinicManager clinic;
+    private final int threads;
+
+    /**
+     * Constructs a new loader.
+     * @param clinic The clinic whose registries are filled.
+     * @param threads Number of worker threads (at least 1).
+     */
+    public ParallelClinicLoader(ClinicManager clinic, int threads) {
+        this.clinic = clinic;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Parse result of one byte range: a record for every non-empty line in file order, rejected
+     * ones included, and where each line starts. Only the text of rejected lines is kept; a line
+     * that fails later, while it is applied, is read back from the file.
+     */
+    private static class Chunk {
+        final List<ParsedRecord> records = new ArrayList<>();
+        long[] offsets = new long[1024];
+        /** Lines rejected while parsing, by index in {@link #records}. */
+        final Map<Integer, String> rejectedLines = new HashMap<>();
+
+        void add(ParsedRecord rec, long offset, String raw) {
+            int i = records.size();
+            if (i == offsets.length) offsets = Arrays.copyOf(offsets, i * 2);
+            offsets[i] = offset;
+            if (rec.error != null) rejectedLines.put(i, raw);
+            records.add(rec);
+        }
+    }
+
+    /**
+     * Loads all lines from the file into the clinic.
+     * @param filePath Path to the CSV file.
+     * @throws IOException if the file cannot be read.
+     */
+    public void load(String filePath) throws IOException {
+        load(filePath, new IngestReport(null));
+    }
+
+    /**
+     * Loads all lines from the file into the clinic.
+     * Rejected lines are passed to the report in file order.
+     * @param filePath Path to the CSV file.
+     * @param report Receives accepted and rejected lines.
+     * @throws IOException if the file cannot be read or the quarantine cannot be written.
+     */
+    public void load(String filePath, IngestReport report) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            // 1. Parse chunks in parallel
+            long[] bounds = splitAtLines(channel);
+            List<Future<Chunk>> parsed = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                parsed.add(pool.submit(() -> parseChunk(channel, start, end)));
+            }
+            List<ParsedRecord> records = new ArrayList<>();
+            List<Chunk> chunks = new ArrayList<>();
+            for (Future<Chunk> f : parsed) {
+                Chunk chunk = await(f);
+                records.addAll(chunk.records);
+                chunks.add(chunk);
+            }
+            long[] offsets = new long[records.size()];
+            Map<Integer, String> rejectedLines = new HashMap<>();
+            int base = 0;
+            for (Chunk chunk : chunks) {
+                System.arraycopy(chunk.offsets, 0, offsets, base, chunk.records.size());
+                for (Map.Entry<Integer, String> e : chunk.rejectedLines.entrySet()) {
+                    rejectedLines.put(base + e.getKey(), e.getValue());
+                }
+                base += chunk.records.size();
+            }
+
+            // 2. Register doctors and patients in file order.
+            // A record that fails in any step is rejected like in the sequential loader.
+            int n = records.size();
+            Doctor[] docs = new Doctor[n];
+            Patient[] pats = new Patient[n];
+            Map<Doctor, List<Integer>> byDoctor = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                ParsedRecord rec = records.get(i);
+                if (rec.error != null) continue;
+                try {
+                    docs[i] = clinic.getOrCreateDoctor(rec.doctorName);
+                    pats[i] = clinic.getOrCreatePatient(rec);
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                byDoctor.computeIfAbsent(docs[i], d -> new ArrayList<>()).add(i);
+            }
+
+            // 3. Resolve slots, one shard of doctors per worker
+            Appointment[] appointments = new Appointment[n];
+            List<List<List<Integer>>> shards = new ArrayList<>();
+            for (int s = 0; s < threads; s++) shards.add(new ArrayList<>());
+            int next = 0;
+            for (List<Integer> group : byDoctor.values()) shards.get(next++ % threads).add(group);
+
+            List<Future<?>> booked = new ArrayList<>();
+            for (List<List<Integer>> shard : shards) {
+                booked.add(pool.submit(() -> {
+                    for (List<Integer> group : shard) bookGroup(group, records, docs, pats, appointments);
+                }));
+            }
+            for (Future<?> f : booked) await(f);
+
+            // 4. Link appointments and prescriptions to patients and report every line, in file order
+            for (int i = 0; i < n; i++) {
+                ParsedRecord rec = records.get(i);
+                if (rec.error != null) {
+                    report.reject(rec.error, rejectedLines.get(i));
+                } else if (appointments[i] == null) {
+                    report.reject(ParseError.OTHER, readLine(channel, offsets[i]));
+                } else {
+                    try {
+                        pats[i].addAppointment(appointments[i]);
+                        if (rec.medicines != null) docs[i].createPrescription(pats[i], rec.medicines);
+                        report.accept();
+                    } catch (RuntimeException e) {
+                        report.reject(ParseError.OTHER, readLine(channel, offsets[i]));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Splits the file into roughly equal byte ranges, each ending right after a newline.
+     * @return Boundaries; range i is [bounds[i], bounds[i + 1]).
+     */
+    private long[] splitAtLines(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunks = Math.min(threads * 4L, size / (64 * 1024) + 1);
+        chunks = Math.max(chunks, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        long[] bounds = new long[(int) chunks + 1];
+        ByteBuffer one = ByteBuffer.allocate(1);
+        for (int i = 1; i < chunks; i++) {
+            long pos = Math.max(bounds[i - 1], size * i / chunks);
+            // move forward to just after the next '\n'
+            while (pos < size) {
+                one.clear();
+                channel.read(one, pos++);
+                if (one.get(0) == '\n') break;
+            }
+            bounds[i] = pos;
+        }
+        bounds[(int) chunks] = size;
+        return bounds;
+    }
+
+    private Chunk parseChunk(FileChannel channel, long start, long end) throws IOException {
+        // Only a line longer than the array limit can make a range this large
+        if (end - start > Integer.MAX_VALUE - 8) throw new IOException("Line at byte " + start + " is too long");
+        ByteBuffer buf = ByteBuffer.allocate((int) (end - start));
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, start + buf.position()) < 0) break;
+        }
+        byte[] bytes = buf.array();
+        int length = buf.position();
+
+        // Lines are cut at the '\n' bytes, so every record knows the byte offset of its line
+        Chunk out = new Chunk();
+        int from = 0;
+        while (from < length) {
+            int nl = from;
+            while (nl < length && bytes[nl] != '\n') nl++;
+            String raw = new String(bytes, from, nl - from, StandardCharsets.UTF_8).trim();
+            long offset = start + from;
+            from = nl + 1;
+            // Remove quotes
+            String line = raw.replace("\"", "");
+            if (line.isEmpty()) continue;
+
+            out.add(ClinicManager.parseRecordSafely(line), offset, raw);
+        }
+        return out;
+    }
+
+    /**
+     * Reads back the line starting at a byte offset, trimmed like when it was parsed.
+     */
+    private static String readLine(FileChannel channel, long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        for (long pos = offset; ; ) {
+            buf.clear();
+            int read = channel.read(buf, pos);
+            if (read <= 0) break;
+            int nl = 0;
+            while (nl < read && buf.get(nl) != '\n') nl++;
+            line.write(buf.array(), 0, nl);
+            if (nl < read) break;
+            pos += read;
+        }
+        return line.toString(StandardCharsets.UTF_8).trim();
+    }
+
+    private void bookGroup(List<Integer> group, List<ParsedRecord> records,
+                           Doctor[] docs, Patient[] pats, Appointment[] appointments) {
+        Doctor doc = docs[group.get(0)];
+        for (int i : group) {
+            ParsedRecord rec = records.get(i);
+            try {
+                LocalDateTime dateTime = doc.findFreeSlot(rec.requestedDate);
+                Appointment apt = new Appointment(dateTime, pats[i], doc, rec.reason);
+                doc.addAppointment(apt);
+                appointments[i] = apt;
+            } catch (RuntimeException e) {
+                // Left null, so the line is rejected in step 4
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Loading interrupted", e);
+        } catch (ExecutionException e) {
+            // Failures of single records are rejected where they happen; anything else is not an I/O error
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Why a CSV line was rejected.
+ */
+enum ParseError {
+    /** The line does not start with a valid yyyy-MM-dd date. */
+    BAD_DATE,
+    /** The "is N years old" part has a number that does not fit an int. */
+    BAD_AGE,
+    /** Any other failure while parsing or applying the line. */
+    OTHER
+}
@@ -0,0 +1,62 @@
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Result of parsing one CSV line, before it is applied to the clinic registries.
+ */
+class ParsedRecord {
+    final LocalDateTime requestedDate;
+    final String doctorName;
+    final String patientId;
+    final String contact;
+    final int age;
+    final String reason;
+    final List<String> medicines;
+    /** Why the line was rejected, or null for a valid record. */
+    final ParseError error;
+
+    private static final ParsedRecord[] REJECTED = new ParsedRecord[ParseError.values().length];
+    static {
+        for (ParseError e : ParseError.values()) REJECTED[e.ordinal()] = new ParsedRecord(e);
+    }
+
+    private ParsedRecord(ParseError error) {
+        this(null, null, null, null, 0, null, null, error);
+    }
+
+    /**
+     * Shared record for a rejected line.
+     * @param error Why the line was rejected.
+     * @return A record with only {@link #error} set.
+     */
+    static ParsedRecord rejected(ParseError error) {
+        return REJECTED[error.ordinal()];
+    }
+
+    /**
+     * Constructs a new ParsedRecord.
+     * @param requestedDate The date from the line, before slot resolution.
+     * @param doctorName Normalized doctor name ("First Last").
+     * @param patientId Patient key (email or "Patient_" + digits).
+     * @param contact Email, phone number or "No Contact".
+     * @param age Patient age, 0 if missing.
+     * @param reason Reason of the visit.
+     * @param medicines Raw medicine names, or null if the line has no prescription.
+     */
+    ParsedRecord(LocalDateTime requestedDate, String doctorName, String patientId, String contact,
+                 int age, String reason, List<String> medicines) {
+        this(requestedDate, doctorName, patientId, contact, age, reason, medicines, null);
+    }
+
+    private ParsedRecord(LocalDateTime requestedDate, String doctorName, String patientId, String contact,
+                         int age, String reason, List<String> medicines, ParseError error) {
+        this.error = error;
+        this.requestedDate = requestedDate;
+        this.doctorName = doctorName;
+        this.patientId = patientId;
+        this.contact = contact;
+        this.age = age;
+        this.reason = reason;
+        this.medicines = medicines;
+    }
+}
@@ -0,0 +1,26 @@
+import java.util.*;
+
+/**
+ * Represents a patient in the clinic.
+ */
+class Patient extends Person implements Treatable {
+    private int age;
+    private List<Appointment> appointments = new ArrayList<>();
+    private List<Prescription> prescriptions = new ArrayList<>();
+
+    public Patient(String name, String contact, int age) {
+        super(name, contact);
+        this.age = age;
+    }
+
+    public int getAge() { return age; }
+    public synchronized void addAppointment(Appointment a) { appointments.add(a); }
+    public synchronized void addPrescription(Prescription p) { prescriptions.add(p); }
+    public synchronized List<Appointment> getAppointments() { return new ArrayList<>(appointments); }
+    public synchronized List<Prescription> getPrescriptions() { return new ArrayList<>(prescriptions); }
+
+    @Override
+    public void receiveTreatment() {
+        System.out.println("Patient " + name + " is receiving treatment...");
+    }
+}
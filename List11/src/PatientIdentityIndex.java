@@ -0,0 +1,193 @@
+import java.util.*;
+
+/**
+ * Registry of patients by patient id, with contact normalization and duplicate detection.
+ * <p>
+ * Open addressing with linear probing over two parallel arrays: the hash of each id and
+ * the patient itself (a patient's name is its id). Get-or-create walks a single probe
+ * sequence and there are no per-entry node objects, so the footprint is two array slots
+ * per capacity unit plus the id strings, which {@link #tableBytes()} and
+ * {@link #idBytes()} report.
+ * <p>
+ * Patient ids are the email as written, or "Patient_" followed by the digits of the
+ * phone number (see {@link #phoneId(String)}). {@link #findLikelyDuplicates()} finds
+ * patients whose contacts only differ in letter case, spacing or phone formatting.
+ */
+class PatientIdentityIndex {
+    private static final int MIN_CAPACITY = 16;
+    private static final String PHONE_PREFIX = "Patient_";
+    // Phone numbers are compared on their last digits, so country codes do not matter
+    private static final int PHONE_DIGITS_COMPARED = 9;
+
+    private int[] hashes = new int[MIN_CAPACITY];
+    private Patient[] slots = new Patient[MIN_CAPACITY];
+    private int size;
+
+    /**
+     * Builds the patient id of a phone-only patient: "Patient_" and the digits of the contact.
+     * @param contact The phone number as written (any formatting).
+     * @return The patient id.
+     */
+    static String phoneId(String contact) {
+        StringBuilder id = new StringBuilder(PHONE_PREFIX.length() + contact.length()).append(PHONE_PREFIX);
+        for (int i = 0; i < contact.length(); i++) {
+            char c = contact.charAt(i);
+            if (c >= '0' && c <= '9') id.append(c);
+        }
+        return id.toString();
+    }
+
+    /**
+     * Returns the patient with the id, registering a new one if there is none.
+     * @param id Patient id.
+     * @param contact Contact used if the patient is new.
+     * @param age Age used if the patient is new.
+     * @return The existing or the new patient.
+     */
+    public Patient getOrCreate(String id, String contact, int age) {
+        int h = hash(id);
+        int mask = slots.length - 1;
+        int i = h & mask;
+        for (Patient p = slots[i]; p != null; p = slots[i = (i + 1) & mask]) {
+            if (hashes[i] == h && p.getName().equals(id)) return p;
+        }
+        Patient p = new Patient(id, contact, age);
+        hashes[i] = h;
+        slots[i] = p;
+        // Keep the load factor at most 2/3, so probe sequences stay short
+        if (++size * 3 > slots.length * 2) resize();
+        return p;
+    }
+
+    /**
+     * @param id Patient id.
+     * @return The patient, or null if there is none with this id.
+     */
+    public Patient get(String id) {
+        int h = hash(id);
+        int mask = slots.length - 1;
+        for (int i = h & mask; slots[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == h && slots[i].getName().equals(id)) return slots[i];
+        }
+        return null;
+    }
+
+    public int size() { return size; }
+
+    /**
+     * @return A live view of all patients, in no particular order.
+     */
+    public Collection<Patient> values() {
+        return new AbstractCollection<Patient>() {
+            @Override
+            public Iterator<Patient> iterator() {
+                return new Iterator<Patient>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        while (from < slots.length && slots[from] == null) from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() { return next < slots.length; }
+
+                    @Override
+                    public Patient next() {
+                        if (next >= slots.length) throw new NoSuchElementException();
+                        Patient p = slots[next];
+                        next = advance(next + 1);
+                        return p;
+                    }
+                };
+            }
+
+            @Override
+            public int size() { return size; }
+        };
+    }
+
+    /**
+     * Groups patients that are registered under different ids but have the same
+     * normalized contact: emails compared case-insensitively without spaces, phone
+     * numbers on their last {@value #PHONE_DIGITS_COMPARED} digits.
+     * @return Groups of at least two patients.
+     */
+    public List<List<Patient>> findLikelyDuplicates() {
+        Map<String, List<Patient>> byContact = new HashMap<>();
+        for (Patient p : values()) {
+            String key = normalizeContact(p.getContactInfo());
+            if (key != null) byContact.computeIfAbsent(key, k -> new ArrayList<>(1)).add(p);
+        }
+        List<List<Patient>> groups = new ArrayList<>();
+        for (List<Patient> group : byContact.values()) {
+            if (group.size() > 1) groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Bytes used by the hash and patient arrays (assuming compressed references).
+     */
+    public long tableBytes() {
+        return 2 * (16 + 4L * slots.length);
+    }
+
+    /**
+     * Bytes used by the id strings (assuming compact one-byte strings).
+     */
+    public long idBytes() {
+        long bytes = 0;
+        for (Patient p : values()) bytes += 24 + 16 + p.getName().length();
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return size + " patients, capacity " + slots.length + ", table " + tableBytes() / 1024
+                + " KB, ids " + idBytes() / 1024 + " KB";
+    }
+
+    /**
+     * Contact reduced to what identifies a person, or null if it has nothing usable.
+     */
+    static String normalizeContact(String contact) {
+        if (contact == null) return null;
+        if (contact.indexOf('@') != -1) {
+            StringBuilder email = new StringBuilder(contact.length());
+            for (int i = 0; i < contact.length(); i++) {
+                char c = contact.charAt(i);
+                if (!Character.isWhitespace(c)) email.append(Character.toLowerCase(c));
+            }
+            return email.toString();
+        }
+        char[] digits = new char[PHONE_DIGITS_COMPARED];
+        int n = 0;
+        for (int i = contact.length() - 1; i >= 0 && n < digits.length; i--) {
+            char c = contact.charAt(i);
+            if (c >= '0' && c <= '9') digits[digits.length - 1 - n++] = c;
+        }
+        return (n == 0) ? null : "tel:" + new String(digits, digits.length - n, n);
+    }
+
+    private void resize() {
+        int[] oldHashes = hashes;
+        Patient[] oldSlots = slots;
+        hashes = new int[oldSlots.length * 2];
+        slots = new Patient[oldSlots.length * 2];
+        int mask = slots.length - 1;
+        for (int j = 0; j < oldSlots.length; j++) {
+            if (oldSlots[j] == null) continue;
+            int i = oldHashes[j] & mask;
+            while (slots[i] != null) i = (i + 1) & mask;
+            hashes[i] = oldHashes[j];
+            slots[i] = oldSlots[j];
+        }
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode();
+        // Spread the high bits, as the table index only uses the low ones
+        return h ^ (h >>> 16);
+    }
+}
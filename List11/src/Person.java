@@ -0,0 +1,30 @@
+/**
+ * Abstract base class representing a person in the system.
+ */
+abstract class Person {
+    protected String name;
+    protected String contactInfo;
+
+    /**
+     * Constructs a new Person.
+     * @param name Full name of the person.
+     * @param contactInfo Email or phone number.
+     */
+    public Person(String name, String contactInfo) {
+        this.name = name;
+        this.contactInfo = contactInfo;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContactInfo() {
+        return contactInfo;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + contactInfo + ")";
+    }
+}
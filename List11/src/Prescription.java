@@ -0,0 +1,21 @@
+import java.util.*;
+
+class Prescription {
+    private Doctor doctor;
+    private Patient patient;
+    private List<Treatment> treatments = new ArrayList<>();
+
+    public Prescription(Doctor doctor, Patient patient) {
+        this.doctor = doctor;
+        this.patient = patient;
+    }
+
+    public void addTreatment(Treatment t) { treatments.add(t); }
+    public List<Treatment> getTreatments() { return treatments; }
+    public Doctor getDoctor() { return doctor; }
+
+    @Override
+    public String toString() {
+        return "Prescription from Dr. " + doctor.getName() + ": " + treatments;
+    }
+}
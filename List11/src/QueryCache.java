@@ -0,0 +1,182 @@
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded LRU cache of query results with tag-based invalidation.
+ * <p>
+ * Every entry is stored with the tags it depends on (e.g. "calendar of doctor X").
+ * {@link #invalidate(Object)} drops exactly the entries carrying that tag. The total
+ * weight of the entries is bounded; the least recently used ones are evicted first.
+ * <p>
+ * Results are computed outside the cache lock. Every invalidation bumps a version
+ * counter and records it for its tag, and a result is only stored if none of its own
+ * tags was invalidated while it was computed, so a stale result is never cached while
+ * writes to unrelated data do not stop caching. Tag versions are only remembered while
+ * a computation that started before them is still running.
+ */
+class QueryCache<K, V> {
+
+    private static class Entry<V> {
+        final V value;
+        final long weight;
+        final List<Object> tags;
+
+        Entry(V value, long weight, List<Object> tags) {
+            this.value = value;
+            this.weight = weight;
+            this.tags = tags;
+        }
+    }
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Object, Set<K>> keysByTag = new HashMap<>();
+    private long version;
+    // Version of the last clear(); results started before it are not stored
+    private long clearedAt;
+    // Version of the last invalidation per tag, in version order, so the ones no running
+    // computation started before are dropped from the head
+    private final LinkedHashMap<Object, Long> invalidatedAt = new LinkedHashMap<>();
+    // Start versions of the running computations, with how many started at each
+    private final TreeMap<Long, Integer> running = new TreeMap<>();
+    private long weight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Constructs a new cache.
+     * @param maxWeight Maximum total weight of cached results.
+     * @param weigher Weight of one result (at least 1 is charged per entry).
+     */
+    public QueryCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the cached result for the key, computing and caching it on a miss.
+     * @param key Query key.
+     * @param tags Tags the result depends on.
+     * @param compute Computes the result.
+     * @return The result.
+     */
+    public V get(K key, List<Object> tags, Supplier<V> compute) {
+        long startVersion;
+        synchronized (this) {
+            Entry<V> e = entries.get(key);
+            if (e != null) {
+                hits++;
+                return e.value;
+            }
+            misses++;
+            startVersion = version;
+            running.merge(startVersion, 1, Integer::sum);
+        }
+
+        try {
+            V value = compute.get();
+            long w = Math.max(1, weigher.applyAsLong(value));
+            if (w > maxWeight) return value;
+
+            synchronized (this) {
+                if (invalidatedSince(tags, startVersion)) return value;
+                remove(key);
+                entries.put(key, new Entry<>(value, w, tags));
+                weight += w;
+                for (Object tag : tags) keysByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+
+                Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+                while (weight > maxWeight && it.hasNext()) {
+                    Map.Entry<K, Entry<V>> eldest = it.next();
+                    it.remove();
+                    unlink(eldest.getKey(), eldest.getValue());
+                    evictions++;
+                }
+            }
+            return value;
+        } finally {
+            synchronized (this) {
+                finished(startVersion);
+            }
+        }
+    }
+
+    /**
+     * Drops every result that depends on the tag.
+     * @param tag The tag whose data changed.
+     */
+    public synchronized void invalidate(Object tag) {
+        version++;
+        // Re-inserted, so the map stays in version order
+        invalidatedAt.remove(tag);
+        if (!running.isEmpty()) invalidatedAt.put(tag, version);
+        Set<K> keys = keysByTag.remove(tag);
+        if (keys == null) return;
+        for (K key : new ArrayList<>(keys)) {
+            if (remove(key)) invalidations++;
+        }
+    }
+
+    /**
+     * Drops everything.
+     */
+    public synchronized void clear() {
+        version++;
+        clearedAt = version;
+        invalidatedAt.clear();
+        entries.clear();
+        keysByTag.clear();
+        weight = 0;
+    }
+
+    private boolean invalidatedSince(List<Object> tags, long startVersion) {
+        if (clearedAt > startVersion) return true;
+        for (Object tag : tags) {
+            Long at = invalidatedAt.get(tag);
+            if (at != null && at > startVersion) return true;
+        }
+        return false;
+    }
+
+    private void finished(long startVersion) {
+        running.merge(startVersion, -1, (count, one) -> (count + one == 0) ? null : count + one);
+        long oldest = running.isEmpty() ? version : running.firstKey();
+        Iterator<Long> it = invalidatedAt.values().iterator();
+        while (it.hasNext() && it.next() <= oldest) it.remove();
+    }
+
+    private boolean remove(K key) {
+        Entry<V> e = entries.remove(key);
+        if (e == null) return false;
+        unlink(key, e);
+        return true;
+    }
+
+    private void unlink(K key, Entry<V> e) {
+        weight -= e.weight;
+        for (Object tag : e.tags) {
+            Set<K> keys = keysByTag.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) keysByTag.remove(tag);
+            }
+        }
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getInvalidations() { return invalidations; }
+    public synchronized int size() { return entries.size(); }
+
+    @Override
+    public synchronized String toString() {
+        return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                + ", invalidations=" + invalidations + ", entries=" + entries.size() + ", weight=" + weight;
+    }
+}
@@ -0,0 +1,26 @@
+import java.time.LocalDateTime;
+
+abstract class Staff extends Person {
+    public Staff(String name) { super(name, "Staff"); }
+
+    public boolean scheduleAppointment(Patient p, Doctor d, LocalDateTime date, String reason) {
+        return book(p, d, date, reason).isBooked();
+    }
+
+    /**
+     * Books a slot atomically: two receptionists booking the same slot of the same
+     * doctor at the same time cannot both succeed.
+     * @param p The patient.
+     * @param d The doctor.
+     * @param date The requested slot.
+     * @param reason Reason of the visit (not null).
+     * @return The booking result.
+     */
+    public BookingResult book(Patient p, Doctor d, LocalDateTime date, String reason) {
+        Appointment app = d.tryBook(p, date, reason);
+        if (app == null) return BookingResult.slotTaken();
+        p.addAppointment(app);
+        d.bookingCompleted(app);
+        return BookingResult.booked(app);
+    }
+}
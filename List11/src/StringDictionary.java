@@ -0,0 +1,56 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary encoding for strings that repeat across many objects.
+ * <p>
+ * Each distinct string gets a small int id. Objects store only the id, so the
+ * 20 or so common medicine names are kept once instead of once per prescription,
+ * and two values can be compared with {@code ==} on their ids.
+ * Lookups in both directions are safe from any thread.
+ */
+class StringDictionary {
+    /** Medicine names and other treatment descriptions. */
+    static final StringDictionary TREATMENTS = new StringDictionary();
+    /** Reasons of appointments. */
+    static final StringDictionary REASONS = new StringDictionary();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Returns the id of a string, assigning a new one if the string was not seen before.
+     * @param value The string.
+     * @return Its id.
+     */
+    public int idOf(String value) {
+        Integer id = ids.get(value);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) return id;
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size] = value;
+            ids.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the string for an id.
+     * @param id An id returned by {@link #idOf(String)}.
+     * @return The string.
+     */
+    public String valueOf(int id) {
+        return values[id];
+    }
+
+    /**
+     * @return Number of distinct strings.
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * Interface defining the capability to receive medical treatment.
+ */
+interface Treatable {
+    /**
+     * Performs the treatment procedure on the entity.
+     */
+    void receiveTreatment();
+}
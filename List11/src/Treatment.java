@@ -0,0 +1,11 @@
+/**
+ * A treatment. The description is stored as an id in {@link StringDictionary#TREATMENTS},
+ * so millions of prescriptions share one copy of each medicine name.
+ */
+class Treatment {
+    private final int descriptionId;
+    public Treatment(String description) { this.descriptionId = StringDictionary.TREATMENTS.idOf(description); }
+    public String getDescription() { return StringDictionary.TREATMENTS.valueOf(descriptionId); }
+    public int getDescriptionId() { return descriptionId; }
+    @Override public String toString() { return getDescription(); }
+}
@@ -40,5 +40,16 @@ public class Main {
         } else {
             System.out.println("Error: Dimension mismatch.");
         }
+
+        // 4. Sparse matrix, built from (row, col, value) triplets
+        System.out.println("\nSparse matrix S (3x3):");
+        SparseMatrix sparse = SparseMatrix.fromTriplets(rows, cols,
+                new int[] {0, 1, 2, 2}, new int[] {0, 2, 1, 1}, new int[] {5, 7, 1, 2}, SparseMatrix.Format.CSR);
+        System.out.println(sparse);
+        sparse.toDense().print();
+        sparse.printSpiral();
+
+        System.out.println("Multiplication (S * A):");
+        sparse.multiply(matrixA).print();
     }
 }
\ No newline at end of file
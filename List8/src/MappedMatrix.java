@@ -0,0 +1,356 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * A matrix stored in a memory-mapped file instead of the heap, for matrices that do not fit in it
+ * (a 100000 x 100000 int matrix is 40 GB).
+ * <p>
+ * The file is a 4 KB header followed by TILE x TILE tiles in row-major tile order, each tile
+ * row-major inside and padded with zeros at the right and bottom edges. Operations stream tiles:
+ * a task copies the tiles it needs into heap arrays, computes with the in-heap kernels of Matrix and
+ * writes its result tile back. The heap therefore holds only a few tiles per thread, and the mapped
+ * pages are page cache that the operating system writes back and evicts as needed.
+ */
+public class MappedMatrix implements AutoCloseable {
+    // Side of a tile; a tile is 4 MB, and a multiply task holds three of them
+    static final int TILE = 1024;
+    private static final int TILE_INTS = TILE * TILE;
+    // 256 MB per mapping, well under the 2 GB limit of one buffer
+    private static final int TILES_PER_MAPPING = 64;
+    // Keeps the tiles page-aligned
+    private static final int HEADER_BYTES = 4096;
+    private static final int MAGIC = 0x4D4D5831;
+
+    // Access modifier: PRIVATE
+    // Why: The dimensions decide where every tile lives in the file; they are fixed when it is created.
+    private final int rows;
+    private final int cols;
+    private final int tileRows;
+    private final int tileCols;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer[] mappings;
+    // Little-endian int views of the mappings; only absolute gets and puts are used, so tasks can share them
+    private final IntBuffer[] views;
+
+    private MappedMatrix(RandomAccessFile file, int rows, int cols) throws IOException {
+        this.file = file;
+        this.rows = rows;
+        this.cols = cols;
+        this.tileRows = (int) (((long) rows + TILE - 1) / TILE);
+        this.tileCols = (int) (((long) cols + TILE - 1) / TILE);
+        long tiles = (long) tileRows * tileCols;
+        int count = (int) ((tiles + TILES_PER_MAPPING - 1) / TILES_PER_MAPPING);
+        this.mappings = new MappedByteBuffer[count];
+        this.views = new IntBuffer[count];
+        FileChannel channel = file.getChannel();
+        for (int m = 0; m < count; m++) {
+            long first = (long) m * TILES_PER_MAPPING;
+            long length = Math.min(TILES_PER_MAPPING, tiles - first) * TILE_INTS * 4L;
+            mappings[m] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + first * TILE_INTS * 4L, length);
+            views[m] = mappings[m].order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+    }
+
+    /**
+     * Creates a file-backed matrix filled with zeros. The file is sparse: disk space is only used
+     * for tiles that are written.
+     * @param path file to create (overwritten if it exists)
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the matrix
+     */
+    public static MappedMatrix create(Path path, int rows, int cols) throws IOException {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Matrix dimensions must be positive: " + rows + "x" + cols);
+        }
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+        file.setLength(0);
+        file.setLength(fileLength(rows, cols));
+        file.writeInt(MAGIC);
+        file.writeInt(rows);
+        file.writeInt(cols);
+        file.writeInt(TILE);
+        return new MappedMatrix(file, rows, cols);
+    }
+
+    /**
+     * Opens a matrix file written by create.
+     * @param path the file
+     * @return the matrix
+     */
+    public static MappedMatrix open(Path path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+        try {
+            if (file.length() < HEADER_BYTES || file.readInt() != MAGIC) {
+                throw new IOException(path + " is not a matrix file");
+            }
+            int rows = file.readInt();
+            int cols = file.readInt();
+            if (file.readInt() != TILE) throw new IOException(path + " has a different tile size");
+            // A corrupt header must not map a region the file does not have
+            if (rows <= 0 || cols <= 0) {
+                throw new IOException(path + " has invalid dimensions " + rows + "x" + cols);
+            }
+            if (file.length() != fileLength(rows, cols)) {
+                throw new IOException(path + " is " + file.length() + " bytes, but a " + rows + "x" + cols
+                        + " matrix needs " + fileLength(rows, cols));
+            }
+            return new MappedMatrix(file, rows, cols);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** Size of the file of a rows x cols matrix: the header and every tile, padding included. */
+    private static long fileLength(int rows, int cols) {
+        long tiles = (((long) rows + TILE - 1) / TILE) * (((long) cols + TILE - 1) / TILE);
+        return HEADER_BYTES + tiles * TILE_INTS * 4L;
+    }
+
+    /**
+     * Copies an in-heap matrix into a new file.
+     * Task 13: Computational Complexity: O(rows * cols).
+     */
+    public static MappedMatrix fromMatrix(Path path, Matrix matrix) throws IOException {
+        MappedMatrix result = create(path, matrix.getRows(), matrix.getCols());
+        int[] data = matrix.rowMajorData();
+        Matrix.forEachTile(result.tileRows, result.tileCols, 1, (tileRow0, tileRow1, tileCol0, tileCol1) -> {
+            int[] tile = new int[TILE_INTS];
+            for (int tileRow = tileRow0; tileRow < tileRow1; tileRow++) {
+                for (int tileCol = tileCol0; tileCol < tileCol1; tileCol++) {
+                    int row0 = tileRow * TILE;
+                    int col0 = tileCol * TILE;
+                    int height = Math.min(TILE, result.rows - row0);
+                    int width = Math.min(TILE, result.cols - col0);
+                    // The multiply relies on zero padding, and the array still holds the previous tile
+                    if (height < TILE || width < TILE) Arrays.fill(tile, 0);
+                    for (int r = 0; r < height; r++) {
+                        System.arraycopy(data, (row0 + r) * result.cols + col0, tile, r * TILE, width);
+                    }
+                    result.writeTile(tileRow, tileCol, tile);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Copies the matrix into the heap, if it fits in one array.
+     * @return the in-heap Matrix, or null if it is too large
+     */
+    public Matrix toMatrix() {
+        if ((long) rows * cols > Integer.MAX_VALUE - 8) {
+            System.out.println("Conversion impossible: Matrix does not fit in one array.");
+            return null;
+        }
+        int[] data = new int[rows * cols];
+        Matrix.forEachTile(tileRows, tileCols, 1, (tileRow0, tileRow1, tileCol0, tileCol1) -> {
+            int[] tile = new int[TILE_INTS];
+            for (int tileRow = tileRow0; tileRow < tileRow1; tileRow++) {
+                for (int tileCol = tileCol0; tileCol < tileCol1; tileCol++) {
+                    readTile(tileRow, tileCol, tile);
+                    int row0 = tileRow * TILE;
+                    int col0 = tileCol * TILE;
+                    int width = Math.min(TILE, cols - col0);
+                    for (int r = 0; r < Math.min(TILE, rows - row0); r++) {
+                        System.arraycopy(tile, r * TILE, data, (row0 + r) * cols + col0, width);
+                    }
+                }
+            }
+        });
+        return new Matrix(rows, cols, data);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Reads one element. Random access to a file larger than the memory costs a disk read per
+     * element; the bulk operations stream whole tiles instead.
+     */
+    public int get(int row, int col) {
+        // An out-of-range index could still land inside the padding of an edge tile
+        Objects.checkIndex(row, rows);
+        Objects.checkIndex(col, cols);
+        long tile = (long) (row / TILE) * tileCols + col / TILE;
+        return views[(int) (tile / TILES_PER_MAPPING)].get(offset(tile) + (row % TILE) * TILE + col % TILE);
+    }
+
+    public void set(int row, int col, int value) {
+        Objects.checkIndex(row, rows);
+        Objects.checkIndex(col, cols);
+        long tile = (long) (row / TILE) * tileCols + col / TILE;
+        views[(int) (tile / TILES_PER_MAPPING)].put(offset(tile) + (row % TILE) * TILE + col % TILE, value);
+    }
+
+    /**
+     * Fills the matrix with random values from a seed, one generator per tile split from the seed
+     * in tile order, so the result does not depend on the parallelism.
+     * Task 13: Computational Complexity: O(rows * cols).
+     */
+    public void populateWithRandomValues(long seed) {
+        SplittableRandom seedRandom = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[tileRows * tileCols];
+        for (int t = 0; t < streams.length; t++) streams[t] = seedRandom.split();
+        Matrix.forEachTile(tileRows, tileCols, 1, (tileRow0, tileRow1, tileCol0, tileCol1) -> {
+            int[] tile = new int[TILE_INTS];
+            for (int tileRow = tileRow0; tileRow < tileRow1; tileRow++) {
+                for (int tileCol = tileCol0; tileCol < tileCol1; tileCol++) {
+                    SplittableRandom random = streams[tileRow * tileCols + tileCol];
+                    int height = Math.min(TILE, rows - tileRow * TILE);
+                    int width = Math.min(TILE, cols - tileCol * TILE);
+                    // The multiply relies on zero padding, and the array still holds the previous tile
+                    if (height < TILE || width < TILE) Arrays.fill(tile, 0);
+                    for (int r = 0; r < height; r++) {
+                        for (int c = 0; c < width; c++) tile[r * TILE + c] = random.nextInt(100) + 1;
+                    }
+                    writeTile(tileRow, tileCol, tile);
+                }
+            }
+        });
+    }
+
+    /**
+     * Transposes the matrix into a new file, one tile at a time: tile (i, j) is transposed in the
+     * heap and written as tile (j, i).
+     * Task 13: Computational Complexity: O(rows * cols), reading and writing the file once.
+     * @param path file of the result
+     * @return the transposed matrix
+     */
+    public MappedMatrix transpose(Path path) throws IOException {
+        MappedMatrix transposed = create(path, cols, rows);
+        Matrix.forEachTile(tileRows, tileCols, 1, (tileRow0, tileRow1, tileCol0, tileCol1) -> {
+            int[] tile = new int[TILE_INTS];
+            for (int tileRow = tileRow0; tileRow < tileRow1; tileRow++) {
+                for (int tileCol = tileCol0; tileCol < tileCol1; tileCol++) {
+                    readTile(tileRow, tileCol, tile);
+                    Matrix square = new Matrix(TILE, TILE, tile);
+                    square.transposeInPlace();
+                    transposed.writeTile(tileCol, tileRow, tile);
+                }
+            }
+        });
+        return transposed;
+    }
+
+    /**
+     * Multiplies this matrix by another one into a new file. Every tile of the result is computed
+     * by one task, which streams a row of tiles of this matrix and a column of tiles of the other
+     * through the blocked kernel. A task holds three tiles (12 MB) of heap.
+     * Task 13: Computational Complexity: O(rows * cols * other.cols) - Standard cubic complexity for matrix multiplication.
+     * @param other the matrix to multiply by
+     * @param path file of the result
+     * @return result matrix or null if dimensions mismatch
+     */
+    public MappedMatrix multiply(MappedMatrix other, Path path) throws IOException {
+        if (this.cols != other.rows) {
+            System.out.println("Multiplication impossible: Dimensions mismatch.");
+            return null;
+        }
+        MappedMatrix result = create(path, this.rows, other.cols);
+        Matrix.forEachTile(tileRows, other.tileCols, 1, (tileRow0, tileRow1, tileCol0, tileCol1) -> {
+            int[] a = new int[TILE_INTS];
+            int[] bt = new int[TILE_INTS];
+            int[] c = new int[TILE_INTS];
+            Matrix bTile = new Matrix(TILE, TILE, bt);
+            for (int tileRow = tileRow0; tileRow < tileRow1; tileRow++) {
+                for (int tileCol = tileCol0; tileCol < tileCol1; tileCol++) {
+                    Arrays.fill(c, 0);
+                    for (int k = 0; k < tileCols; k++) {
+                        readTile(tileRow, k, a);
+                        other.readTile(k, tileCol, bt);
+                        bTile.transposeInPlace();
+                        Matrix.multiplyAdd(a, bt, c, TILE);
+                    }
+                    result.writeTile(tileRow, tileCol, c);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Prints the matrix to the console.
+     * Task 13: Computational Complexity: O(rows * cols) - linear relative to number of elements.
+     */
+    public void print() {
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                System.out.print(get(row, col) + "\t");
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Prints the matrix elements in spiral order.
+     * Task 13: Computational Complexity: O(rows * cols) - each element is visited and printed exactly once.
+     */
+    public void printSpiral() {
+        int top = 0, bottom = rows - 1;
+        int left = 0, right = cols - 1;
+
+        System.out.print("Spiral: ");
+        while (top <= bottom && left <= right) {
+            for (int i = left; i <= right; i++) System.out.print(get(top, i) + " ");
+            top++;
+            for (int i = top; i <= bottom; i++) System.out.print(get(i, right) + " ");
+            right--;
+            if (top <= bottom) {
+                for (int i = right; i >= left; i--) System.out.print(get(bottom, i) + " ");
+                bottom--;
+            }
+            if (left <= right) {
+                for (int i = bottom; i >= top; i--) System.out.print(get(i, left) + " ");
+                left++;
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * Writes all changed pages to the file.
+     */
+    public void flush() {
+        for (MappedByteBuffer mapping : mappings) mapping.force();
+    }
+
+    /**
+     * Flushes and closes the file. The mappings are released when they are garbage collected,
+     * so the matrix must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        file.close();
+    }
+
+    void readTile(int tileRow, int tileCol, int[] dst) {
+        long tile = (long) tileRow * tileCols + tileCol;
+        views[(int) (tile / TILES_PER_MAPPING)].get(offset(tile), dst, 0, TILE_INTS);
+    }
+
+    void writeTile(int tileRow, int tileCol, int[] src) {
+        long tile = (long) tileRow * tileCols + tileCol;
+        views[(int) (tile / TILES_PER_MAPPING)].put(offset(tile), src, 0, TILE_INTS);
+    }
+
+    /** Index of the tile's first int within its mapping. */
+    private static int offset(long tile) {
+        return (int) (tile % TILES_PER_MAPPING) * TILE_INTS;
+    }
+}
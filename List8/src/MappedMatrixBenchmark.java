@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+public class MappedMatrixBenchmark {
+    /**
+     * Checks MappedMatrix against the in-heap Matrix, then creates a 100000 x 100000 matrix and
+     * fills, transposes and multiplies file-backed matrices, reporting the heap in use.
+     * Run it with a small heap (e.g. -Xmx256m) to see that the file size does not matter.
+     * Usage: MappedMatrixBenchmark [directory] [size for fill and transpose] [size for multiply]
+     */
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"));
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 32768;
+        int multiplySize = args.length > 2 ? Integer.parseInt(args[2]) : 4096;
+        Path a = dir.resolve("matrix-a.bin");
+        Path b = dir.resolve("matrix-b.bin");
+        Path c = dir.resolve("matrix-c.bin");
+
+        try {
+            // Correctness on a size that is not a multiple of the tile
+            Matrix heapA = new Matrix(2500, 1800, 1);
+            Matrix heapB = new Matrix(1800, 2100, 2);
+            boolean ok;
+            try (MappedMatrix fileA = MappedMatrix.fromMatrix(a, heapA);
+                 MappedMatrix fileB = MappedMatrix.fromMatrix(b, heapB);
+                 MappedMatrix product = fileA.multiply(fileB, c)) {
+                ok = product.toMatrix().equals(heapA.multiply(heapB));
+            }
+            try (MappedMatrix reopened = MappedMatrix.open(a);
+                 MappedMatrix transposed = reopened.transpose(c)) {
+                ok &= reopened.toMatrix().equals(heapA) && transposed.toMatrix().equals(heapA.transpose());
+            }
+            // Sequentially every task reuses one tile array across full and edge tiles
+            int parallelism = Matrix.getParallelism();
+            Matrix.setParallelism(1);
+            try (MappedMatrix fileA = MappedMatrix.fromMatrix(a, new Matrix(1500, 1500, 7));
+                 MappedMatrix fileB = MappedMatrix.create(b, 1500, 1500)) {
+                fileB.populateWithRandomValues(8);
+                Matrix expected = fileA.toMatrix().multiply(fileB.toMatrix());
+                try (MappedMatrix product = fileA.multiply(fileB, c)) {
+                    ok &= product.toMatrix().equals(expected);
+                }
+            } finally {
+                Matrix.setParallelism(parallelism);
+            }
+            System.out.println("File-backed results equal in-heap results: " + ok);
+
+            // A matrix far larger than the heap; the file stays sparse until tiles are written
+            try (MappedMatrix huge = MappedMatrix.create(a, 100_000, 100_000)) {
+                huge.set(0, 0, 1);
+                huge.set(99_999, 99_999, 2);
+                huge.set(12_345, 67_890, 3);
+                System.out.printf("%nCreated 100000x100000 (%,d MB file): corners %d %d, (12345, 67890) = %d%n",
+                        Files.size(a) >> 20, huge.get(0, 0), huge.get(99_999, 99_999), huge.get(12_345, 67_890));
+            }
+            report("after create");
+
+            long start = System.nanoTime();
+            try (MappedMatrix big = MappedMatrix.create(a, size, size)) {
+                big.populateWithRandomValues(3);
+                big.flush();
+                System.out.printf("%nFilled %dx%d (%,d MB) in %.1f s%n", size, size, Files.size(a) >> 20,
+                        (System.nanoTime() - start) / 1e9);
+                start = System.nanoTime();
+                try (MappedMatrix transposed = big.transpose(b)) {
+                    transposed.flush();
+                    System.out.printf("Transposed in %.1f s%n", (System.nanoTime() - start) / 1e9);
+                    // Few samples: every random get of a file larger than the memory is a disk read
+                    Random random = new Random(4);
+                    boolean same = true;
+                    for (int i = 0; i < 1000; i++) {
+                        int row = random.nextInt(size);
+                        int col = random.nextInt(size);
+                        same &= big.get(row, col) == transposed.get(col, row);
+                    }
+                    System.out.println("Sampled elements match: " + same);
+                }
+            }
+            report("after transpose");
+
+            try (MappedMatrix fileA = MappedMatrix.create(a, multiplySize, multiplySize);
+                 MappedMatrix fileB = MappedMatrix.create(b, multiplySize, multiplySize)) {
+                fileA.populateWithRandomValues(5);
+                fileB.populateWithRandomValues(6);
+                start = System.nanoTime();
+                try (MappedMatrix product = fileA.multiply(fileB, c)) {
+                    System.out.printf("%nMultiplied %dx%d from files in %.1f s, (0, 0) = %d%n", product.getRows(),
+                            product.getCols(), (System.nanoTime() - start) / 1e9, product.get(0, 0));
+                }
+            }
+            report("after multiply");
+        } finally {
+            Files.deleteIfExists(a);
+            Files.deleteIfExists(b);
+            Files.deleteIfExists(c);
+        }
+    }
+
+    private static void report(String when) {
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("Heap %s: %d MB used of %d MB max%n", when,
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20, runtime.maxMemory() >> 20);
+    }
+}
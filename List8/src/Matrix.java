@@ -1,10 +1,46 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Matrix {
+    // Tile sizes of the blocked multiply: BLOCK_J rows of the transposed B, BLOCK_K elements
+    // long (256 KB), stay in the L2 cache while every row of A passes over them.
+    private static final int BLOCK_K = 1024;
+    private static final int BLOCK_J = 64;
+    // Work is split into fork-join tasks of about this many multiply-adds,
+    // or COPY_TASK_CELLS elements for operations that touch every element once
+    private static final long TASK_WORK = 1 << 22;
+    private static final int COPY_TASK_CELLS = 1 << 16;
+    // Random values are generated in chunks of this size, each from its own split of the seed
+    private static final int RANDOM_CHUNK = 1 << 16;
+    // Transposes copy blocks of at most this many rows and columns at a time:
+    // the rows read and the rows written both stay in the L1 cache
+    private static final int TRANSPOSE_BLOCK = 32;
+
+    // Below this size the recursive multiplies switch to the blocked kernel. Smaller blocks lose
+    // more to the extra additions than Strassen saves (see MatrixBenchmark).
+    public static final int DEFAULT_CUTOFF = 1024;
+
+    // Access modifier: PRIVATE
+    // Why: Scratch arrays of the recursive multiplies are reused between levels and calls.
+    private static final ScratchPool SCRATCH = new ScratchPool();
+
+    // Access modifier: PRIVATE
+    // Why: All matrices share one pool, replaced only through setParallelism; null means sequential.
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
     // Access modifier: PRIVATE
     // Why: The array and dimensions are tightly coupled. Modifying 'rows' without resizing
     // 'data' would crash the program. We keep them private to ensure consistency.
-    private int[][] data;
+    // The elements are stored row by row in one flat array: element (row, col) is at
+    // data[row * cols + col], so a row is contiguous in memory and there is one object per matrix.
+    private int[] data;
     private int rows;
     private int cols;
 
@@ -14,11 +50,22 @@ public class Matrix {
      * @param cols number of columns
      */
     public Matrix(int rows, int cols) {
+        this(rows, cols, new Random().nextLong());
+    }
+
+    /**
+     * Constructor that initializes the matrix with random values from a seed.
+     * The same seed gives the same matrix at any parallelism.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param seed seed of the random values
+     */
+    public Matrix(int rows, int cols, long seed) {
         this.rows = rows;
         this.cols = cols;
-        this.data = new int[rows][cols];
+        this.data = allocate(rows, cols);
         // Task 9: Logic broken into a meaningful helper method
-        populateWithRandomValues();
+        populateWithRandomValues(seed);
     }
 
     /**
@@ -27,7 +74,39 @@ public class Matrix {
     private Matrix(int rows, int cols, boolean empty) {
         this.rows = rows;
         this.cols = cols;
-        this.data = new int[rows][cols];
+        this.data = allocate(rows, cols);
+    }
+
+    /**
+     * Allocates the flat array of a rows x cols matrix. The size is computed in long, so a matrix
+     * that does not fit in one array is rejected instead of wrapping to a wrong size.
+     * Access modifier: PACKAGE-PRIVATE
+     * Why: SparseMatrix allocates its dense results the same way.
+     */
+    static int[] allocate(int rows, int cols) {
+        long size = (long) rows * cols;
+        if (rows < 0 || cols < 0 || size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("A " + rows + "x" + cols + " matrix does not fit in one array");
+        }
+        return new int[(int) size];
+    }
+
+    /**
+     * Package-private constructor wrapping a row-major array without copying it.
+     * Access modifier: PACKAGE-PRIVATE
+     * Why: SparseMatrix builds dense results in place; outside code must not share the array.
+     */
+    Matrix(int rows, int cols, int[] data) {
+        this.rows = rows;
+        this.cols = cols;
+        this.data = data;
+    }
+
+    /**
+     * The row-major elements themselves, for SparseMatrix (see the constructor above).
+     */
+    int[] rowMajorData() {
+        return data;
     }
 
     public int getRows() {
@@ -38,17 +117,49 @@ public class Matrix {
         return cols;
     }
 
+    public int get(int row, int col) {
+        // The flat index of an out-of-range column would silently land in the next row
+        Objects.checkIndex(row, rows);
+        Objects.checkIndex(col, cols);
+        return data[row * cols + col];
+    }
+
+    /**
+     * Sets how many threads the matrix operations use; 1 makes them sequential.
+     * By default they run on the common fork-join pool.
+     * @param parallelism number of worker threads
+     */
+    public static synchronized void setParallelism(int parallelism) {
+        ForkJoinPool old = pool;
+        pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+        if (old != null && old != ForkJoinPool.commonPool()) old.shutdown();
+    }
+
+    public static int getParallelism() {
+        ForkJoinPool p = pool;
+        return (p == null) ? 1 : p.getParallelism();
+    }
+
     /**
      * Helper method to populate the matrix with random numbers.
+     * Every chunk of RANDOM_CHUNK elements gets its own generator, split from the seed in chunk
+     * order before any work starts, so the values do not depend on how the chunks are scheduled.
      * Task 13: Computational Complexity: O(rows * cols) - we iterate through every cell once.
      */
-    private void populateWithRandomValues() {
-        Random random = new Random();
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                data[row][col] = random.nextInt(100) + 1;
+    private void populateWithRandomValues(long seed) {
+        SplittableRandom seedRandom = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[(data.length + RANDOM_CHUNK - 1) / RANDOM_CHUNK];
+        for (int c = 0; c < streams.length; c++) streams[c] = seedRandom.split();
+        forEachTile(streams.length, 1, 1, (firstChunk, endChunk, unusedFrom, unusedTo) -> {
+            for (int c = firstChunk; c < endChunk; c++) {
+                SplittableRandom random = streams[c];
+                // In long, as the end of the last chunk can pass Integer.MAX_VALUE
+                int end = (int) Math.min(data.length, (long) (c + 1) * RANDOM_CHUNK);
+                for (int i = c * RANDOM_CHUNK; i < end; i++) {
+                    data[i] = random.nextInt(100) + 1;
+                }
             }
-        }
+        });
     }
 
     /**
@@ -58,7 +169,7 @@ public class Matrix {
     public void print() {
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
-                System.out.print(data[row][col] + "\t");
+                System.out.print(data[row * cols + col] + "\t");
             }
             System.out.println();
         }
@@ -66,21 +177,105 @@ public class Matrix {
 
     /**
      * Transposes the matrix.
+     * Cache-oblivious: the matrix is halved along its longer side until a block is small enough,
+     * so at every level of the cache hierarchy the block being copied fits in it. The top levels of
+     * the halving are the fork-join tasks.
      * Task 13: Computational Complexity: O(rows * cols) - we visit every element once to move it.
      * @return a new Matrix object representing the transpose
      */
     public Matrix transpose() {
+        Matrix transposed = new Matrix(cols, rows, true);
+        forEachTile(rows, cols, COPY_TASK_CELLS,
+                (row0, row1, col0, col1) -> transposeBlock(transposed.data, row0, row1, col0, col1));
+        return transposed;
+    }
+
+    /**
+     * Textbook transpose, kept as the reference for the cache-oblivious one.
+     * Task 13: Computational Complexity: O(rows * cols).
+     * @return a new Matrix object representing the transpose
+     */
+    public Matrix transposeNaive() {
         Matrix transposed = new Matrix(cols, rows, true);
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
-                transposed.data[col][row] = this.data[row][col];
+                transposed.data[col * rows + row] = this.data[row * cols + col];
             }
         }
         return transposed;
     }
 
+    /**
+     * Transposes a square matrix in place, without allocating a second matrix: every tile above
+     * the diagonal is swapped with its mirror tile below it, and tiles on the diagonal are
+     * transposed within themselves. Tile pairs are independent, so they run as fork-join tasks.
+     * Task 13: Computational Complexity: O(rows * cols).
+     */
+    public void transposeInPlace() {
+        if (rows != cols) {
+            System.out.println("In-place transpose impossible: Matrix is not square.");
+            return;
+        }
+        int tiles = (rows + TRANSPOSE_BLOCK - 1) / TRANSPOSE_BLOCK;
+        long tilesPerTask = Math.max(1, COPY_TASK_CELLS / (TRANSPOSE_BLOCK * TRANSPOSE_BLOCK));
+        forEachTile(tiles, tiles, tilesPerTask, (tileRow0, tileRow1, tileCol0, tileCol1) -> {
+            for (int tileRow = tileRow0; tileRow < tileRow1; tileRow++) {
+                for (int tileCol = Math.max(tileCol0, tileRow); tileCol < tileCol1; tileCol++) {
+                    swapTiles(tileRow, tileCol);
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies the block [row0, row1) x [col0, col1) of this matrix, transposed, into dst.
+     */
+    private void transposeBlock(int[] dst, int row0, int row1, int col0, int col1) {
+        int height = row1 - row0;
+        int width = col1 - col0;
+        if (height <= TRANSPOSE_BLOCK && width <= TRANSPOSE_BLOCK) {
+            for (int col = col0; col < col1; col++) {
+                int d = col * rows;
+                for (int row = row0; row < row1; row++) {
+                    dst[d + row] = data[row * cols + col];
+                }
+            }
+        } else if (height >= width) {
+            int mid = row0 + height / 2;
+            transposeBlock(dst, row0, mid, col0, col1);
+            transposeBlock(dst, mid, row1, col0, col1);
+        } else {
+            int mid = col0 + width / 2;
+            transposeBlock(dst, row0, row1, col0, mid);
+            transposeBlock(dst, row0, row1, mid, col1);
+        }
+    }
+
+    /**
+     * Swaps tile (tileRow, tileCol) with its mirror (tileCol, tileRow), transposing both;
+     * a tile on the diagonal is transposed within itself.
+     */
+    private void swapTiles(int tileRow, int tileCol) {
+        int row0 = tileRow * TRANSPOSE_BLOCK;
+        int row1 = Math.min(row0 + TRANSPOSE_BLOCK, rows);
+        int col0 = tileCol * TRANSPOSE_BLOCK;
+        int col1 = Math.min(col0 + TRANSPOSE_BLOCK, cols);
+        for (int row = row0; row < row1; row++) {
+            for (int col = (tileRow == tileCol) ? row + 1 : col0; col < col1; col++) {
+                int upper = row * cols + col;
+                int lower = col * cols + row;
+                int value = data[upper];
+                data[upper] = data[lower];
+                data[lower] = value;
+            }
+        }
+    }
+
     /**
      * Multiplies this matrix by another matrix.
+     * B is transposed first, so every element of the result is a dot product of two contiguous
+     * rows. The work is done in tiles that fit in the cache, and inside a tile a 2 x 2 block of the
+     * result is computed at once, so every loaded element is used twice.
      * Task 13: Computational Complexity: O(rows * cols * other.cols) - Standard cubic complexity for matrix multiplication.
      * @param other the matrix to multiply by
      * @return result Matrix or null if dimensions mismatch
@@ -90,18 +285,439 @@ public class Matrix {
             System.out.println("Multiplication impossible: Dimensions mismatch.");
             return null;
         }
-        Matrix result = new Matrix(this.rows, other.cols, true);
+        return multiplyTransposed(other.transpose());
+    }
+
+    /**
+     * Multiplies this matrix by a matrix whose transpose is given, skipping the transpose
+     * (useful when the same right-hand matrix is used many times).
+     * Task 13: Computational Complexity: O(rows * cols * otherTransposed.rows).
+     * @param otherTransposed transpose of the matrix to multiply by
+     * @return result Matrix or null if dimensions mismatch
+     */
+    public Matrix multiplyTransposed(Matrix otherTransposed) {
+        if (this.cols != otherTransposed.cols) {
+            System.out.println("Multiplication impossible: Dimensions mismatch.");
+            return null;
+        }
+        Matrix result = new Matrix(this.rows, otherTransposed.rows, true);
+        long cellsPerTask = Math.max(1, TASK_WORK / Math.max(1, this.cols));
+        forEachTile(this.rows, result.cols, cellsPerTask,
+                (i0, i1, j0, j1) -> multiplyBlock(otherTransposed, result, i0, i1, j0, j1));
+        return result;
+    }
+
+    /**
+     * Computes rows [i0, i1) and columns [j0, j1) of this * B, one cache tile at a time.
+     */
+    private void multiplyBlock(Matrix otherTransposed, Matrix result, int i0, int i1, int j0, int j1) {
+        for (int k0 = 0; k0 < this.cols; k0 += BLOCK_K) {
+            int k1 = Math.min(k0 + BLOCK_K, this.cols);
+            for (int jb = j0; jb < j1; jb += BLOCK_J) {
+                multiplyTile(this.data, 0, this.cols, otherTransposed.data, 0, otherTransposed.cols,
+                        result.data, 0, result.cols, i0, i1, jb, Math.min(jb + BLOCK_J, j1), k0, k1);
+            }
+        }
+    }
 
+    /**
+     * Textbook i-j-k multiply, kept as the reference for the blocked version.
+     * Task 13: Computational Complexity: O(rows * cols * other.cols).
+     * @param other the matrix to multiply by
+     * @return result Matrix or null if dimensions mismatch
+     */
+    public Matrix multiplyNaive(Matrix other) {
+        if (this.cols != other.rows) {
+            System.out.println("Multiplication impossible: Dimensions mismatch.");
+            return null;
+        }
+        Matrix result = new Matrix(this.rows, other.cols, true);
         for (int i = 0; i < this.rows; i++) {
             for (int j = 0; j < other.cols; j++) {
+                int sum = 0;
                 for (int k = 0; k < this.cols; k++) {
-                    result.data[i][j] += this.data[i][k] * other.data[k][j];
+                    sum += this.data[i * this.cols + k] * other.data[k * other.cols + j];
                 }
+                result.data[i * other.cols + j] = sum;
             }
         }
         return result;
     }
 
+    /**
+     * Multiplies square matrices with Strassen's algorithm: 7 half-size products per level
+     * instead of 8, down to DEFAULT_CUTOFF, where the blocked kernel takes over.
+     * Task 13: Computational Complexity: O(n^2.81).
+     * @param other the matrix to multiply by
+     * @return result Matrix or null if dimensions mismatch
+     */
+    public Matrix multiplyStrassen(Matrix other) {
+        return multiplyRecursive(other, true, DEFAULT_CUTOFF);
+    }
+
+    /**
+     * Multiplies square matrices by splitting them into quadrants until the blocks are at most
+     * cutoff wide, then multiplying the blocks with the blocked kernel. With strassen, every level
+     * does 7 products of sums of quadrants instead of the 8 quadrant products.
+     * <p>
+     * A size that does not halve evenly down to the cutoff is padded with zeros only up to the
+     * next multiple of 2^depth (for example 5000 -> 5008 with cutoff 1024), not to the next power
+     * of two. Sums and products of each level come from a scratch pool, so a multiply allocates
+     * them once per level and later multiplies reuse them. Results equal multiply(), as int
+     * arithmetic wraps the same way in any order. The products run one after another, but the
+     * sums and the blocked kernel of each product split into tiles on the shared pool.
+     * Non-square matrices use multiply().
+     * Task 13: Computational Complexity: O(n^2.81) with strassen, otherwise O(n^3).
+     * @param other the matrix to multiply by
+     * @param strassen whether to use Strassen's 7 products
+     * @param cutoff largest block multiplied directly
+     * @return result Matrix or null if dimensions mismatch
+     */
+    public Matrix multiplyRecursive(Matrix other, boolean strassen, int cutoff) {
+        if (this.cols != other.rows) {
+            System.out.println("Multiplication impossible: Dimensions mismatch.");
+            return null;
+        }
+        int n = this.rows;
+        if (this.cols != n || other.cols != n || n <= cutoff) return multiply(other);
+
+        int base = n;
+        int depth = 0;
+        while (base > cutoff) {
+            base = (base + 1) / 2;
+            depth++;
+        }
+        int size = base << depth;
+        // Padding can push a size that fits past the array limit; the scratch arrays must fit too
+        if ((long) size * size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("A " + n + "x" + n + " matrix padded to " + size + "x" + size
+                    + " does not fit in one array");
+        }
+        Matrix result = new Matrix(n, n, true);
+        int[] a = padded(this.data, n, size);
+        int[] b = padded(other.data, n, size);
+        int[] c = (size == n) ? result.data : SCRATCH.takeZeroed(size * size);
+        int[] bt = SCRATCH.take(base * base);
+        if (strassen) {
+            strassen(a, 0, size, b, 0, size, c, 0, size, size, base, bt);
+        } else {
+            recursive(a, 0, size, b, 0, size, c, 0, size, size, base, bt);
+        }
+        if (size != n) {
+            for (int row = 0; row < n; row++) System.arraycopy(c, row * size, result.data, row * n, n);
+            SCRATCH.give(a);
+            SCRATCH.give(b);
+            SCRATCH.give(c);
+        }
+        SCRATCH.give(bt);
+        return result;
+    }
+
+    /**
+     * C += A * B for n x n views, with 8 half-size products per level.
+     */
+    private static void recursive(int[] a, int aOff, int aStride, int[] b, int bOff, int bStride,
+                                  int[] c, int cOff, int cStride, int n, int base, int[] bt) {
+        if (n == base) {
+            multiplyBase(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n, bt);
+            return;
+        }
+        int h = n / 2;
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 2; j++) {
+                for (int k = 0; k < 2; k++) {
+                    recursive(a, aOff + i * h * aStride + k * h, aStride, b, bOff + k * h * bStride + j * h, bStride,
+                            c, cOff + i * h * cStride + j * h, cStride, h, base, bt);
+                }
+            }
+        }
+    }
+
+    /**
+     * C += A * B for n x n views, with Strassen's 7 half-size products per level:
+     * C11 = M1 + M4 - M5 + M7, C12 = M3 + M5, C21 = M2 + M4, C22 = M1 - M2 + M3 + M6.
+     * Every product is computed into one scratch block and added to the quadrants it belongs to.
+     */
+    private static void strassen(int[] a, int aOff, int aStride, int[] b, int bOff, int bStride,
+                                 int[] c, int cOff, int cStride, int n, int base, int[] bt) {
+        if (n == base) {
+            multiplyBase(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n, bt);
+            return;
+        }
+        int h = n / 2;
+        int a11 = aOff, a12 = aOff + h, a21 = aOff + h * aStride, a22 = a21 + h;
+        int b11 = bOff, b12 = bOff + h, b21 = bOff + h * bStride, b22 = b21 + h;
+        int c11 = cOff, c12 = cOff + h, c21 = cOff + h * cStride, c22 = c21 + h;
+        int[] s = SCRATCH.take(h * h);
+        int[] t = SCRATCH.take(h * h);
+        int[] p = SCRATCH.take(h * h);
+
+        // M1 = (A11 + A22)(B11 + B22)
+        combine(a, a11, a22, aStride, 1, s, h);
+        combine(b, b11, b22, bStride, 1, t, h);
+        product(s, 0, h, t, 0, h, p, h, base, bt);
+        addTo(c, c11, cStride, p, h, 1);
+        addTo(c, c22, cStride, p, h, 1);
+        // M2 = (A21 + A22) B11
+        combine(a, a21, a22, aStride, 1, s, h);
+        product(s, 0, h, b, b11, bStride, p, h, base, bt);
+        addTo(c, c21, cStride, p, h, 1);
+        addTo(c, c22, cStride, p, h, -1);
+        // M3 = A11 (B12 - B22)
+        combine(b, b12, b22, bStride, -1, t, h);
+        product(a, a11, aStride, t, 0, h, p, h, base, bt);
+        addTo(c, c12, cStride, p, h, 1);
+        addTo(c, c22, cStride, p, h, 1);
+        // M4 = A22 (B21 - B11)
+        combine(b, b21, b11, bStride, -1, t, h);
+        product(a, a22, aStride, t, 0, h, p, h, base, bt);
+        addTo(c, c11, cStride, p, h, 1);
+        addTo(c, c21, cStride, p, h, 1);
+        // M5 = (A11 + A12) B22
+        combine(a, a11, a12, aStride, 1, s, h);
+        product(s, 0, h, b, b22, bStride, p, h, base, bt);
+        addTo(c, c11, cStride, p, h, -1);
+        addTo(c, c12, cStride, p, h, 1);
+        // M6 = (A21 - A11)(B11 + B12)
+        combine(a, a21, a11, aStride, -1, s, h);
+        combine(b, b11, b12, bStride, 1, t, h);
+        product(s, 0, h, t, 0, h, p, h, base, bt);
+        addTo(c, c22, cStride, p, h, 1);
+        // M7 = (A12 - A22)(B21 + B22)
+        combine(a, a12, a22, aStride, -1, s, h);
+        combine(b, b21, b22, bStride, 1, t, h);
+        product(s, 0, h, t, 0, h, p, h, base, bt);
+        addTo(c, c11, cStride, p, h, 1);
+
+        SCRATCH.give(s);
+        SCRATCH.give(t);
+        SCRATCH.give(p);
+    }
+
+    /** p = x * y, where p is a contiguous h x h block. */
+    private static void product(int[] x, int xOff, int xStride, int[] y, int yOff, int yStride,
+                                int[] p, int h, int base, int[] bt) {
+        Arrays.fill(p, 0, h * h, 0);
+        strassen(x, xOff, xStride, y, yOff, yStride, p, 0, h, h, base, bt);
+    }
+
+    /** dst = x1 + sign * x2, two h x h views of one array; dst is contiguous. */
+    private static void combine(int[] x, int off1, int off2, int stride, int sign, int[] dst, int h) {
+        forEachTile(h, h, COPY_TASK_CELLS, (row0, row1, col0, col1) -> {
+            for (int row = row0; row < row1; row++) {
+                int r1 = off1 + row * stride;
+                int r2 = off2 + row * stride;
+                int d = row * h;
+                if (sign > 0) {
+                    for (int col = col0; col < col1; col++) dst[d + col] = x[r1 + col] + x[r2 + col];
+                } else {
+                    for (int col = col0; col < col1; col++) dst[d + col] = x[r1 + col] - x[r2 + col];
+                }
+            }
+        });
+    }
+
+    /** The c view += sign * p, where p is a contiguous h x h block. */
+    private static void addTo(int[] c, int cOff, int cStride, int[] p, int h, int sign) {
+        forEachTile(h, h, COPY_TASK_CELLS, (row0, row1, col0, col1) -> {
+            for (int row = row0; row < row1; row++) {
+                int r = cOff + row * cStride;
+                int q = row * h;
+                if (sign > 0) {
+                    for (int col = col0; col < col1; col++) c[r + col] += p[q + col];
+                } else {
+                    for (int col = col0; col < col1; col++) c[r + col] -= p[q + col];
+                }
+            }
+        });
+    }
+
+    /** C += A * B for n x n views at the cutoff: B is transposed into bt, then the blocked kernel runs. */
+    private static void multiplyBase(int[] a, int aOff, int aStride, int[] b, int bOff, int bStride,
+                                     int[] c, int cOff, int cStride, int n, int[] bt) {
+        forEachTile(n, 1, Math.max(1, COPY_TASK_CELLS / n), (row0, row1, unusedFrom, unusedTo) -> {
+            for (int row = row0; row < row1; row++) {
+                int r = bOff + row * bStride;
+                for (int col = 0; col < n; col++) bt[col * n + row] = b[r + col];
+            }
+        });
+        // Every tile writes its own rows and columns of C, so the tiles run on the pool
+        forEachTile(n, n, Math.max(1, TASK_WORK / n), (i0, i1, j0, j1) -> {
+            for (int jb = j0; jb < j1; jb += BLOCK_J) {
+                multiplyTile(a, aOff, aStride, bt, 0, n, c, cOff, cStride, i0, i1, jb, Math.min(jb + BLOCK_J, j1), 0, n);
+            }
+        });
+    }
+
+    /** The n x n array as a size x size array padded with zeros (the array itself if no padding is needed). */
+    private static int[] padded(int[] data, int n, int size) {
+        if (size == n) return data;
+        int[] copy = SCRATCH.takeZeroed(size * size);
+        for (int row = 0; row < n; row++) System.arraycopy(data, row * n, copy, row * size, n);
+        return copy;
+    }
+
+    /**
+     * C += A * B for n x n row-major arrays, with B given transposed, one cache tile at a time.
+     * Access modifier: PACKAGE-PRIVATE
+     * Why: MappedMatrix runs this kernel on the tiles it loads from its file.
+     */
+    static void multiplyAdd(int[] a, int[] bt, int[] c, int n) {
+        for (int k0 = 0; k0 < n; k0 += BLOCK_K) {
+            int k1 = Math.min(k0 + BLOCK_K, n);
+            for (int j0 = 0; j0 < n; j0 += BLOCK_J) {
+                multiplyTile(a, 0, n, bt, 0, n, c, 0, n, 0, n, j0, Math.min(j0 + BLOCK_J, n), k0, k1);
+            }
+        }
+    }
+
+    /**
+     * Adds rows [i0, i1), columns [j0, j1) and inner index [k0, k1) of A * B to C, where A, B^T
+     * and C are given as (array, offset, row stride) views.
+     */
+    private static void multiplyTile(int[] a, int aOff, int aStride, int[] bt, int bOff, int bStride,
+                                     int[] c, int cOff, int cStride, int i0, int i1, int j0, int j1, int k0, int k1) {
+        int i = i0;
+        for (; i + 1 < i1; i += 2) {
+            int a0 = aOff + i * aStride;
+            int a1 = a0 + aStride;
+            int c0 = cOff + i * cStride;
+            int c1 = c0 + cStride;
+            int j = j0;
+            for (; j + 1 < j1; j += 2) {
+                int b0 = bOff + j * bStride;
+                int b1 = b0 + bStride;
+                int s00 = 0, s01 = 0, s10 = 0, s11 = 0;
+                for (int k = k0; k < k1; k++) {
+                    int x0 = a[a0 + k];
+                    int x1 = a[a1 + k];
+                    int y0 = bt[b0 + k];
+                    int y1 = bt[b1 + k];
+                    s00 += x0 * y0;
+                    s01 += x0 * y1;
+                    s10 += x1 * y0;
+                    s11 += x1 * y1;
+                }
+                c[c0 + j] += s00;
+                c[c0 + j + 1] += s01;
+                c[c1 + j] += s10;
+                c[c1 + j + 1] += s11;
+            }
+            if (j < j1) {
+                c[c0 + j] += dot(a, a0, bt, bOff + j * bStride, k0, k1);
+                c[c1 + j] += dot(a, a1, bt, bOff + j * bStride, k0, k1);
+            }
+        }
+        if (i < i1) {
+            int a0 = aOff + i * aStride;
+            int c0 = cOff + i * cStride;
+            for (int j = j0; j < j1; j++) c[c0 + j] += dot(a, a0, bt, bOff + j * bStride, k0, k1);
+        }
+    }
+
+    private static int dot(int[] a, int aStart, int[] b, int bStart, int k0, int k1) {
+        int sum = 0;
+        for (int k = k0; k < k1; k++) sum += a[aStart + k] * b[bStart + k];
+        return sum;
+    }
+
+    /**
+     * Free int arrays by length. Keeps at most MAX_PER_SIZE arrays of a length and MAX_INTS ints in total.
+     */
+    private static class ScratchPool {
+        private static final int MAX_PER_SIZE = 8;
+        private static final long MAX_INTS = 1L << 26;
+        private final Map<Integer, ArrayDeque<int[]>> free = new HashMap<>();
+        private long pooledInts;
+
+        synchronized int[] take(int length) {
+            ArrayDeque<int[]> arrays = free.get(length);
+            if (arrays == null || arrays.isEmpty()) return new int[length];
+            pooledInts -= length;
+            return arrays.pop();
+        }
+
+        int[] takeZeroed(int length) {
+            int[] array = take(length);
+            Arrays.fill(array, 0);
+            return array;
+        }
+
+        synchronized void give(int[] array) {
+            ArrayDeque<int[]> arrays = free.computeIfAbsent(array.length, length -> new ArrayDeque<>());
+            if (arrays.size() < MAX_PER_SIZE && pooledInts + array.length <= MAX_INTS) {
+                arrays.push(array);
+                pooledInts += array.length;
+            }
+        }
+    }
+
+    interface TileBody {
+        void run(int row0, int row1, int col0, int col1);
+    }
+
+    /**
+     * Runs the body over a rows x cols range. With a pool and more than cellsPerTask cells, the
+     * range is halved along its longer side into fork-join tasks of at most cellsPerTask cells.
+     */
+    static void forEachTile(int rows, int cols, long cellsPerTask, TileBody body) {
+        ForkJoinPool p = pool;
+        if (p == null || (long) rows * cols <= cellsPerTask) {
+            body.run(0, rows, 0, cols);
+        } else {
+            p.invoke(new TileTask(0, rows, 0, cols, cellsPerTask, body));
+        }
+    }
+
+    private static class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int row0, row1, col0, col1;
+        private final long cellsPerTask;
+        // Tasks are never serialized; the body is a lambda
+        @SuppressWarnings("serial")
+        private final TileBody body;
+
+        TileTask(int row0, int row1, int col0, int col1, long cellsPerTask, TileBody body) {
+            this.row0 = row0;
+            this.row1 = row1;
+            this.col0 = col0;
+            this.col1 = col1;
+            this.cellsPerTask = cellsPerTask;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            int height = row1 - row0;
+            int width = col1 - col0;
+            if ((long) height * width <= cellsPerTask || (height < 2 && width < 2)) {
+                body.run(row0, row1, col0, col1);
+            } else if (height >= width) {
+                int mid = row0 + height / 2;
+                invokeAll(new TileTask(row0, mid, col0, col1, cellsPerTask, body),
+                        new TileTask(mid, row1, col0, col1, cellsPerTask, body));
+            } else {
+                int mid = col0 + width / 2;
+                invokeAll(new TileTask(row0, row1, col0, mid, cellsPerTask, body),
+                        new TileTask(row0, row1, mid, col1, cellsPerTask, body));
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Matrix)) return false;
+        Matrix other = (Matrix) o;
+        return rows == other.rows && cols == other.cols && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * rows + cols) + Arrays.hashCode(data);
+    }
+
     /**
      * Prints the matrix elements in spiral order.
      * Task 13: Computational Complexity: O(rows * cols) - each element is visited and printed exactly once.
@@ -112,16 +728,16 @@ public class Matrix {
 
         System.out.print("Spiral: ");
         while (top <= bottom && left <= right) {
-            for (int i = left; i <= right; i++) System.out.print(data[top][i] + " ");
+            for (int i = left; i <= right; i++) System.out.print(data[top * cols + i] + " ");
             top++;
-            for (int i = top; i <= bottom; i++) System.out.print(data[i][right] + " ");
+            for (int i = top; i <= bottom; i++) System.out.print(data[i * cols + right] + " ");
             right--;
             if (top <= bottom) {
-                for (int i = right; i >= left; i--) System.out.print(data[bottom][i] + " ");
+                for (int i = right; i >= left; i--) System.out.print(data[bottom * cols + i] + " ");
                 bottom--;
             }
             if (left <= right) {
-                for (int i = bottom; i >= top; i--) System.out.print(data[i][left] + " ");
+                for (int i = bottom; i >= top; i--) System.out.print(data[i * cols + left] + " ");
                 left++;
             }
         }
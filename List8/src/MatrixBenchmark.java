@@ -0,0 +1,112 @@
+public class MatrixBenchmark {
+    /**
+     * Times the naive multiply and the blocked multiply, sequential and on all cores, on random
+     * square matrices and checks that they agree. The blocked times include transposing B.
+     * Then compares the Strassen and plain recursive multiplies at several cutoffs, sequential and
+     * on all cores. Before all that, times the transposes up to their own largest size.
+     * Usage: MatrixBenchmark [largest size] [largest size for the naive multiply] [parallelism]
+     *        [largest size for the transposes]
+     */
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int maxNaive = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int maxTranspose = args.length > 3 ? Integer.parseInt(args[3]) : 8192;
+
+        // Seeded matrices must not depend on the number of threads that filled them
+        Matrix.setParallelism(1);
+        Matrix sequentialFill = new Matrix(1000, 1000, 42);
+        Matrix.setParallelism(parallelism);
+        boolean reproducible = sequentialFill.equals(new Matrix(1000, 1000, 42));
+        System.out.println("Seeded fill reproducible across parallelism: " + reproducible);
+
+        // Transposes; the out-of-place times include clearing the new matrix
+        System.out.printf("%6s %12s %12s %12s%n", "n", "naive [s]", "blocked [s]", "in place [s]");
+        for (int n = 1024; n <= maxTranspose; n *= 2) {
+            Matrix a = new Matrix(n, n, n);
+            for (int i = 0; i < 3; i++) {
+                a.transposeNaive();
+                a.transpose();
+                a.transposeInPlace();
+            }
+            long start = System.nanoTime();
+            Matrix naive = a.transposeNaive();
+            double naiveSeconds = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            Matrix blocked = a.transpose();
+            double blockedSeconds = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            a.transposeInPlace();
+            double inPlaceSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%6d %12.3f %12.3f %12.3f %s%n", n, naiveSeconds, blockedSeconds, inPlaceSeconds,
+                    naive.equals(blocked) && naive.equals(a) ? "" : "RESULTS DIFFER");
+        }
+        System.out.println();
+
+        // Warm-up, so the JIT has compiled the kernels before anything is timed
+        Matrix warmA = new Matrix(256, 256);
+        Matrix warmB = new Matrix(256, 256);
+        for (int i = 0; i < 5; i++) {
+            warmA.multiplyNaive(warmB);
+            warmA.multiply(warmB);
+        }
+
+        System.out.printf("%6s %12s %12s %12s (parallelism %d)%n", "n", "naive [s]", "blocked [s]", "parallel [s]",
+                parallelism);
+        for (int n = 256; n <= maxSize; n *= 2) {
+            Matrix a = new Matrix(n, n, n);
+            Matrix b = new Matrix(n, n, n + 1);
+
+            Matrix.setParallelism(1);
+            long start = System.nanoTime();
+            Matrix blocked = a.multiply(b);
+            double blockedSeconds = (System.nanoTime() - start) / 1e9;
+
+            Matrix.setParallelism(parallelism);
+            start = System.nanoTime();
+            Matrix parallel = a.multiply(b);
+            double parallelSeconds = (System.nanoTime() - start) / 1e9;
+
+            String naiveTime = "-";
+            boolean same = blocked.equals(parallel);
+            if (n <= maxNaive) {
+                start = System.nanoTime();
+                Matrix naive = a.multiplyNaive(b);
+                naiveTime = String.format("%.3f", (System.nanoTime() - start) / 1e9);
+                same &= naive.equals(blocked);
+            }
+            System.out.printf("%6d %12s %12.3f %12.3f %s%n", n, naiveTime, blockedSeconds, parallelSeconds,
+                    same ? "" : "RESULTS DIFFER");
+        }
+
+        // Strassen and plain recursive multiply against the blocked one, sequential and then on
+        // the pool, to find the cutoff and the size where the recursion starts to pay off
+        int[] cutoffs = {256, 512, 1024};
+        int[] threadCounts = parallelism == 1 ? new int[] {1} : new int[] {1, parallelism};
+        for (int threads : threadCounts) {
+            Matrix.setParallelism(threads);
+            System.out.printf("%n%6s %12s", "n", "blocked [s]");
+            for (int cutoff : cutoffs) System.out.printf(" %18s", "Strassen/" + cutoff + " [s]");
+            for (int cutoff : cutoffs) System.out.printf(" %18s", "recursive/" + cutoff + " [s]");
+            System.out.printf(" (parallelism %d)%n", threads);
+            for (int n = 1024; n <= maxSize; n *= 2) {
+                Matrix a = new Matrix(n, n, n);
+                Matrix b = new Matrix(n, n, n + 1);
+                long start = System.nanoTime();
+                Matrix blocked = a.multiply(b);
+                System.out.printf("%6d %12.3f", n, (System.nanoTime() - start) / 1e9);
+                boolean same = true;
+                for (boolean strassen : new boolean[] {true, false}) {
+                    for (int cutoff : cutoffs) {
+                        start = System.nanoTime();
+                        Matrix recursive = a.multiplyRecursive(b, strassen, cutoff);
+                        System.out.printf(" %18.3f", (System.nanoTime() - start) / 1e9);
+                        same &= recursive.equals(blocked);
+                    }
+                }
+                System.out.println(same ? "" : " RESULTS DIFFER");
+            }
+        }
+        Matrix.setParallelism(1);
+    }
+}
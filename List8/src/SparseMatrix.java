@@ -0,0 +1,399 @@
+import java.util.Arrays;
+
+public class SparseMatrix {
+    /**
+     * CSR keeps the non-zeros row by row (pointers per row, column indices),
+     * CSC column by column (pointers per column, row indices).
+     */
+    public enum Format { CSR, CSC }
+
+    // Work per fork-join task, in multiply-adds (same scale as the dense Matrix tasks)
+    private static final long TASK_WORK = 1 << 20;
+
+    // Access modifier: PRIVATE
+    // Why: The three arrays describe one matrix together and are shared between a matrix and its
+    // transpose, so nothing may change them after construction.
+    private final int rows;
+    private final int cols;
+    private final Format format;
+    // Non-zeros of major line m (a row in CSR, a column in CSC) are at [pointers[m], pointers[m + 1]),
+    // sorted by their minor index
+    private final int[] pointers;
+    private final int[] indices;
+    private final int[] values;
+    // The same matrix in the other format, built on first use
+    private volatile SparseMatrix converted;
+
+    private SparseMatrix(int rows, int cols, Format format, int[] pointers, int[] indices, int[] values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.format = format;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+     * Builds a sparse matrix from coordinate triplets (row[i], col[i], value[i]).
+     * Duplicate coordinates are summed and zeros are dropped.
+     * Task 13: Computational Complexity: O(nnz + rows + cols) - two stable counting sorts, no comparisons.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param row row of every entry
+     * @param col column of every entry
+     * @param value value of every entry
+     * @param format storage format
+     * @return the sparse matrix
+     */
+    public static SparseMatrix fromTriplets(int rows, int cols, int[] row, int[] col, int[] value, Format format) {
+        if (row.length != value.length || col.length != value.length) {
+            throw new IllegalArgumentException("Triplet arrays must have the same length");
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (row[i] < 0 || row[i] >= rows || col[i] < 0 || col[i] >= cols) {
+                throw new IllegalArgumentException("Entry (" + row[i] + ", " + col[i] + ") is outside " + rows + "x" + cols);
+            }
+        }
+        boolean csr = format == Format.CSR;
+        int[] major = csr ? row : col;
+        int[] minor = csr ? col : row;
+        int majorCount = csr ? rows : cols;
+
+        // Sorting by minor and then stably by major orders the entries by (major, minor)
+        int[] order = new int[value.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        order = countingOrder(minor, csr ? cols : rows, order);
+        order = countingOrder(major, majorCount, order);
+
+        int[] pointers = new int[majorCount + 1];
+        int[] indices = new int[value.length];
+        int[] values = new int[value.length];
+        int nnz = 0;
+        for (int i = 0; i < order.length; ) {
+            int e = order[i];
+            int sum = 0;
+            // Duplicates are adjacent after the sort
+            for (; i < order.length && major[order[i]] == major[e] && minor[order[i]] == minor[e]; i++) {
+                sum += value[order[i]];
+            }
+            if (sum != 0) {
+                indices[nnz] = minor[e];
+                values[nnz] = sum;
+                pointers[major[e] + 1]++;
+                nnz++;
+            }
+        }
+        for (int m = 0; m < majorCount; m++) pointers[m + 1] += pointers[m];
+        return new SparseMatrix(rows, cols, format, pointers, Arrays.copyOf(indices, nnz), Arrays.copyOf(values, nnz));
+    }
+
+    /**
+     * Builds a sparse matrix holding the non-zeros of a dense one.
+     * Task 13: Computational Complexity: O(rows * cols).
+     */
+    public static SparseMatrix fromDense(Matrix dense, Format format) {
+        int[] data = dense.rowMajorData();
+        int nnz = 0;
+        for (int v : data) if (v != 0) nnz++;
+        int[] pointers = new int[dense.getRows() + 1];
+        int[] indices = new int[nnz];
+        int[] values = new int[nnz];
+        int cols = dense.getCols();
+        int e = 0;
+        for (int r = 0; r < dense.getRows(); r++) {
+            for (int c = 0; c < cols; c++) {
+                int v = data[r * cols + c];
+                if (v != 0) {
+                    indices[e] = c;
+                    values[e++] = v;
+                }
+            }
+            pointers[r + 1] = e;
+        }
+        SparseMatrix csr = new SparseMatrix(dense.getRows(), cols, Format.CSR, pointers, indices, values);
+        return (format == Format.CSR) ? csr : csr.toFormat(Format.CSC);
+    }
+
+    /**
+     * Task 13: Computational Complexity: O(rows * cols) to clear the array, plus O(nnz).
+     * @return a dense Matrix with the same elements
+     */
+    public Matrix toDense() {
+        int[] data = Matrix.allocate(rows, cols);
+        for (int m = 0; m < majorCount(); m++) {
+            for (int e = pointers[m]; e < pointers[m + 1]; e++) {
+                if (format == Format.CSR) data[m * cols + indices[e]] = values[e];
+                else data[indices[e] * cols + m] = values[e];
+            }
+        }
+        return new Matrix(rows, cols, data);
+    }
+
+    /**
+     * The same matrix in the given format. The conversion is done once and kept.
+     * Task 13: Computational Complexity: O(nnz + rows + cols) the first time (a counting sort), O(1) after that.
+     */
+    public SparseMatrix toFormat(Format target) {
+        if (target == format) return this;
+        SparseMatrix result = converted;
+        if (result == null) {
+            int minorCount = (format == Format.CSR) ? cols : rows;
+            int[] newPointers = new int[minorCount + 1];
+            for (int index : indices) newPointers[index + 1]++;
+            for (int m = 0; m < minorCount; m++) newPointers[m + 1] += newPointers[m];
+            int[] next = Arrays.copyOf(newPointers, minorCount);
+            int[] newIndices = new int[indices.length];
+            int[] newValues = new int[values.length];
+            // Walking the old major lines in order leaves every new line sorted
+            for (int m = 0; m < majorCount(); m++) {
+                for (int e = pointers[m]; e < pointers[m + 1]; e++) {
+                    int at = next[indices[e]]++;
+                    newIndices[at] = m;
+                    newValues[at] = values[e];
+                }
+            }
+            result = new SparseMatrix(rows, cols, target, newPointers, newIndices, newValues);
+            result.converted = this;
+            converted = result;
+        }
+        return result;
+    }
+
+    /**
+     * Transposes the matrix. The CSR arrays of a matrix are the CSC arrays of its transpose,
+     * so the result shares them and switches the format.
+     * Task 13: Computational Complexity: O(1).
+     */
+    public SparseMatrix transpose() {
+        Format other = (format == Format.CSR) ? Format.CSC : Format.CSR;
+        return new SparseMatrix(cols, rows, other, pointers, indices, values);
+    }
+
+    /**
+     * Task 13: Computational Complexity: O(log(non-zeros in the row or column)) - binary search.
+     */
+    public int get(int row, int col) {
+        int major = (format == Format.CSR) ? row : col;
+        int minor = (format == Format.CSR) ? col : row;
+        int at = Arrays.binarySearch(indices, pointers[major], pointers[major + 1], minor);
+        return (at >= 0) ? values[at] : 0;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public int getNonZeros() {
+        return values.length;
+    }
+
+    /**
+     * Bytes used by the three arrays: 8 per non-zero plus 4 per row (CSR) or column (CSC).
+     */
+    public long memoryBytes() {
+        return 3 * 16 + 4L * (pointers.length + indices.length + values.length);
+    }
+
+    /**
+     * Multiplies this matrix by a vector (SpMV). Rows are processed in parallel fork-join tasks.
+     * Task 13: Computational Complexity: O(nnz + rows).
+     * @param vector vector of length cols
+     * @return result vector of length rows, or null if dimensions mismatch
+     */
+    public int[] multiply(int[] vector) {
+        if (vector.length != cols) {
+            System.out.println("Multiplication impossible: Dimensions mismatch.");
+            return null;
+        }
+        SparseMatrix csr = toFormat(Format.CSR);
+        int[] result = new int[rows];
+        Matrix.forEachTile(rows, 1, rowsPerTask(1), (row0, row1, unusedFrom, unusedTo) -> {
+            for (int r = row0; r < row1; r++) {
+                int sum = 0;
+                for (int e = csr.pointers[r]; e < csr.pointers[r + 1]; e++) sum += csr.values[e] * vector[csr.indices[e]];
+                result[r] = sum;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Multiplies this matrix by a dense one (SpMM). Every row of the result is the sum of the rows
+     * of the dense matrix picked by the non-zeros of the row; rows are processed in parallel.
+     * Task 13: Computational Complexity: O(nnz * other.cols + rows * other.cols).
+     * @param other the matrix to multiply by
+     * @return result Matrix or null if dimensions mismatch
+     */
+    public Matrix multiply(Matrix other) {
+        if (cols != other.getRows()) {
+            System.out.println("Multiplication impossible: Dimensions mismatch.");
+            return null;
+        }
+        SparseMatrix csr = toFormat(Format.CSR);
+        int m = other.getCols();
+        int[] b = other.rowMajorData();
+        int[] c = Matrix.allocate(rows, m);
+        Matrix.forEachTile(rows, 1, rowsPerTask(m), (row0, row1, unusedFrom, unusedTo) -> {
+            for (int r = row0; r < row1; r++) {
+                int cr = r * m;
+                for (int e = csr.pointers[r]; e < csr.pointers[r + 1]; e++) {
+                    int v = csr.values[e];
+                    int bk = csr.indices[e] * m;
+                    for (int j = 0; j < m; j++) c[cr + j] += v * b[bk + j];
+                }
+            }
+        });
+        return new Matrix(rows, m, c);
+    }
+
+    /**
+     * Multiplies two sparse matrices (Gustavson's row-by-row algorithm). Each task gathers its rows
+     * of the result in a dense accumulator with a list of touched columns, so its cost follows the
+     * non-zeros only; the per-task results are then joined into one CSR matrix.
+     * Task 13: Computational Complexity: O(multiply-adds + rows + other.cols per task).
+     * @param other the matrix to multiply by
+     * @return result in CSR format, or null if dimensions mismatch
+     */
+    public SparseMatrix multiply(SparseMatrix other) {
+        if (cols != other.rows) {
+            System.out.println("Multiplication impossible: Dimensions mismatch.");
+            return null;
+        }
+        SparseMatrix a = toFormat(Format.CSR);
+        SparseMatrix b = other.toFormat(Format.CSR);
+        int[] rowNonZeros = new int[rows];
+        // A few row ranges per thread for load balance; each range needs an accumulator of other.cols
+        int taskCount = Math.max(1, Math.min(rows, 4 * Matrix.getParallelism()));
+        int[][] taskIndices = new int[taskCount][];
+        int[][] taskValues = new int[taskCount][];
+
+        Matrix.forEachTile(taskCount, 1, 1, (task0, task1, unusedFrom, unusedTo) -> {
+            int[] accumulator = new int[other.cols];
+            boolean[] touched = new boolean[other.cols];
+            int[] touchedCols = new int[other.cols];
+            for (int task = task0; task < task1; task++) {
+                int row0 = (int) ((long) rows * task / taskCount);
+                int row1 = (int) ((long) rows * (task + 1) / taskCount);
+                IntList outIndices = new IntList();
+                IntList outValues = new IntList();
+                for (int r = row0; r < row1; r++) {
+                    int count = 0;
+                    for (int e = a.pointers[r]; e < a.pointers[r + 1]; e++) {
+                        int v = a.values[e];
+                        int k = a.indices[e];
+                        for (int f = b.pointers[k]; f < b.pointers[k + 1]; f++) {
+                            int j = b.indices[f];
+                            if (!touched[j]) {
+                                touched[j] = true;
+                                touchedCols[count++] = j;
+                            }
+                            accumulator[j] += v * b.values[f];
+                        }
+                    }
+                    Arrays.sort(touchedCols, 0, count);
+                    int kept = 0;
+                    for (int t = 0; t < count; t++) {
+                        int j = touchedCols[t];
+                        if (accumulator[j] != 0) {
+                            outIndices.add(j);
+                            outValues.add(accumulator[j]);
+                            kept++;
+                        }
+                        accumulator[j] = 0;
+                        touched[j] = false;
+                    }
+                    rowNonZeros[r] = kept;
+                }
+                taskIndices[task] = outIndices.toArray();
+                taskValues[task] = outValues.toArray();
+            }
+        });
+
+        int[] pointers = new int[rows + 1];
+        for (int r = 0; r < rows; r++) pointers[r + 1] = pointers[r] + rowNonZeros[r];
+        int[] indices = new int[pointers[rows]];
+        int[] values = new int[pointers[rows]];
+        for (int task = 0, at = 0; task < taskCount; task++) {
+            System.arraycopy(taskIndices[task], 0, indices, at, taskIndices[task].length);
+            System.arraycopy(taskValues[task], 0, values, at, taskValues[task].length);
+            at += taskIndices[task].length;
+        }
+        return new SparseMatrix(rows, other.cols, Format.CSR, pointers, indices, values);
+    }
+
+    /**
+     * Prints the matrix elements (zeros included) in spiral order, like Matrix.printSpiral.
+     * Task 13: Computational Complexity: O(rows * cols * log(nnz per line)).
+     */
+    public void printSpiral() {
+        int top = 0, bottom = rows - 1;
+        int left = 0, right = cols - 1;
+
+        System.out.print("Spiral: ");
+        while (top <= bottom && left <= right) {
+            for (int i = left; i <= right; i++) System.out.print(get(top, i) + " ");
+            top++;
+            for (int i = top; i <= bottom; i++) System.out.print(get(i, right) + " ");
+            right--;
+            if (top <= bottom) {
+                for (int i = right; i >= left; i--) System.out.print(get(bottom, i) + " ");
+                bottom--;
+            }
+            if (left <= right) {
+                for (int i = bottom; i >= top; i--) System.out.print(get(i, left) + " ");
+                left++;
+            }
+        }
+        System.out.println();
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + cols + " " + format + ", " + getNonZeros() + " non-zeros, " + memoryBytes() + " bytes";
+    }
+
+    private int majorCount() {
+        return (format == Format.CSR) ? rows : cols;
+    }
+
+    /** Rows per task so that a task does about TASK_WORK multiply-adds. */
+    private long rowsPerTask(int workPerNonZero) {
+        long workPerRow = Math.max(1, (long) values.length * workPerNonZero / Math.max(1, rows));
+        return Math.max(1, TASK_WORK / workPerRow);
+    }
+
+    /**
+     * Stable counting sort: returns order rearranged so that keys[order[i]] is non-decreasing.
+     */
+    private static int[] countingOrder(int[] keys, int keyCount, int[] order) {
+        int[] start = new int[keyCount + 1];
+        for (int e : order) start[keys[e] + 1]++;
+        for (int k = 0; k < keyCount; k++) start[k + 1] += start[k];
+        int[] sorted = new int[order.length];
+        for (int e : order) sorted[start[keys[e]]++] = e;
+        return sorted;
+    }
+
+    /** Growable int array, to collect the non-zeros of a task without boxing. */
+    private static class IntList {
+        private int[] items = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.Random;
+
+public class SparseMatrixBenchmark {
+    /**
+     * Checks the sparse operations against the dense Matrix on a small matrix, then times them
+     * on a large one that would not fit in memory as a dense matrix.
+     * Usage: SparseMatrixBenchmark [size] [non-zeros per row]
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int perRow = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        // Correctness on 1500 x 1500 with 1% non-zeros
+        SparseMatrix small = random(1500, 1500, 15, 1);
+        SparseMatrix smallOther = random(1500, 1500, 15, 2);
+        Matrix dense = small.toDense();
+        Matrix denseOther = smallOther.toDense();
+        Matrix expected = dense.multiply(denseOther);
+        boolean ok = small.multiply(denseOther).equals(expected)
+                && small.multiply(smallOther).toDense().equals(expected)
+                && small.toFormat(SparseMatrix.Format.CSC).multiply(smallOther).toDense().equals(expected)
+                && small.transpose().toDense().equals(dense.transpose())
+                && SparseMatrix.fromDense(dense, SparseMatrix.Format.CSC).toDense().equals(dense);
+        System.out.println("Sparse results equal dense results: " + ok);
+
+        long start = System.nanoTime();
+        dense.multiply(denseOther);
+        double denseSeconds = (System.nanoTime() - start) / 1e9;
+        start = System.nanoTime();
+        small.multiply(denseOther);
+        double spmmSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("1500x1500, 1%% non-zeros: dense multiply %.3f s, sparse x dense %.3f s%n",
+                denseSeconds, spmmSeconds);
+
+        // Large matrix
+        start = System.nanoTime();
+        SparseMatrix a = random(n, n, perRow, 3);
+        System.out.printf("%nBuilt %s from triplets in %.3f s (dense would need %,d MB)%n",
+                a, (System.nanoTime() - start) / 1e9, 4L * n * n >> 20);
+
+        int[] vector = new int[n];
+        for (int i = 0; i < n; i++) vector[i] = i % 7;
+        start = System.nanoTime();
+        for (int i = 0; i < 10; i++) a.multiply(vector);
+        System.out.printf("SpMV: %.2f ms%n", (System.nanoTime() - start) / 1e6 / 10);
+
+        Matrix block = new Matrix(n, 16, 4);
+        start = System.nanoTime();
+        a.multiply(block);
+        System.out.printf("SpMM with %dx16 dense: %.3f s%n", n, (System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        SparseMatrix square = a.multiply(a);
+        System.out.printf("Sparse x sparse: %.3f s, result %s%n", (System.nanoTime() - start) / 1e9, square);
+
+        start = System.nanoTime();
+        SparseMatrix csc = a.toFormat(SparseMatrix.Format.CSC);
+        System.out.printf("CSR -> CSC: %.3f s, %s%n", (System.nanoTime() - start) / 1e9, csc);
+    }
+
+    /** rows x cols matrix with about perRow random non-zeros (1..100) in every row. */
+    private static SparseMatrix random(int rows, int cols, int perRow, long seed) {
+        Random random = new Random(seed);
+        int count = rows * perRow;
+        int[] row = new int[count];
+        int[] col = new int[count];
+        int[] value = new int[count];
+        for (int i = 0; i < count; i++) {
+            row[i] = i / perRow;
+            col[i] = random.nextInt(cols);
+            value[i] = random.nextInt(100) + 1;
+        }
+        return SparseMatrix.fromTriplets(rows, cols, row, col, value, SparseMatrix.Format.CSR);
+    }
+}